@@ -0,0 +1,155 @@
+package com.github.ggruzdov.slideshow.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Slideshow REST API calls. Every call is recorded into Metrics under the operation name,
+ * failed calls return null, so a caller just skips the rest of its cycle.
+ */
+final class ApiClient {
+
+    // What a player needs from the ordered slideshow
+    record Playlist(String eTag, Integer currentImageId, List<Integer> imageIds) {
+    }
+
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final Metrics metrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient;
+
+    ApiClient(LoadTestConfig config, Metrics metrics) {
+        this.baseUrl = config.baseUrl();
+        this.requestTimeout = config.requestTimeout();
+        this.metrics = metrics;
+        this.httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    Integer createSlideshow(List<String> urls, int duration) {
+        var images = urls.stream().map(url -> Map.of("url", url, "duration", duration)).toList();
+        var response = send("createSlideshow", post("/slideshow", images));
+        return response == null ? null : json(response.body()).get("id").asInt();
+    }
+
+    Integer createImage(String url, int duration) {
+        var response = send("createImage", post("/image", Map.of("url", url, "duration", duration)));
+        return response == null ? null : json(response.body()).get("id").asInt();
+    }
+
+    /**
+     * @return the previous playlist if the slideshow is not modified
+     */
+    Playlist getOrdered(int slideshowId, Playlist previous) {
+        var request = request("/slideshow/" + slideshowId + "/ordered").GET();
+        if (previous != null && previous.eTag() != null) {
+            request.header("If-None-Match", previous.eTag());
+        }
+
+        var response = send("getOrdered", request);
+        if (response == null) {
+            return null;
+        }
+        if (response.statusCode() == 304) {
+            return previous;
+        }
+
+        Integer currentImageId = null;
+        var imageIds = new ArrayList<Integer>();
+        for (var image : json(response.body()).get("images")) {
+            imageIds.add(image.get("id").asInt());
+            if (image.get("isCurrent").asBoolean()) {
+                currentImageId = image.get("id").asInt();
+            }
+        }
+
+        return new Playlist(response.headers().firstValue("ETag").orElse(null), currentImageId, imageIds);
+    }
+
+    boolean proofOfPlay(int slideshowId, int imageId) {
+        return send("proofOfPlay", request("/slideshow/" + slideshowId + "/proof-of-play/" + imageId).POST(HttpRequest.BodyPublishers.noBody())) != null;
+    }
+
+    boolean append(int slideshowId, int imageId) {
+        return send("append", request("/slideshow/" + slideshowId + "/append/" + imageId).POST(HttpRequest.BodyPublishers.noBody())) != null;
+    }
+
+    boolean remove(int slideshowId, int imageId) {
+        return send("remove", request("/slideshow/" + slideshowId + "/remove/" + imageId).POST(HttpRequest.BodyPublishers.noBody())) != null;
+    }
+
+    private HttpResponse<String> send(String operation, HttpRequest.Builder request) {
+        var startedAt = System.nanoTime();
+        var outcome = Metrics.Outcome.ERROR;
+        String failure = null;
+        try {
+            var response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            var status = response.statusCode();
+            failure = Integer.toString(status);
+            if (status < 400) {
+                outcome = Metrics.Outcome.OK;
+                return response;
+            }
+
+            // Classified by status only, lock timeouts and deadlocks are errors(see the failures by status)
+            if (status == 503) {
+                outcome = Metrics.Outcome.OVERLOADED;
+            } else if (status == 409) {
+                outcome = Metrics.Outcome.CONFLICT;
+            }
+            return null;
+        } catch (HttpTimeoutException e) {
+            outcome = Metrics.Outcome.TIMEOUT;
+            failure = "timeout";
+            return null;
+        } catch (IOException e) {
+            failure = e.getClass().getSimpleName();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            // Requests aborted by the end of the test are not counted
+            if (!Thread.currentThread().isInterrupted()) {
+                metrics.record(operation, startedAt, outcome, failure);
+            }
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(requestTimeout);
+    }
+
+    private HttpRequest.Builder post(String path, Object body) {
+        try {
+            return request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private JsonNode json(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected response: " + body, e);
+        }
+    }
+}
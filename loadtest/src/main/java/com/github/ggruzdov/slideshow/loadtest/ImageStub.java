@@ -0,0 +1,52 @@
+package com.github.ggruzdov.slideshow.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+
+/**
+ * Image storage stand-in for the application's URL validation: every path is a tiny JPEG.
+ * Supports HEAD and ranged GET, the way the application validates images.
+ */
+final class ImageStub implements AutoCloseable {
+
+    // JPEG SOI + JFIF APP0 marker, enough for the signature check
+    private static final byte[] JPEG = {
+        (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0x00, 0x10, 'J', 'F', 'I', 'F', 0x00, 0x01
+    };
+
+    private final HttpServer server;
+
+    ImageStub(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", "image/jpeg");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            var ranged = exchange.getRequestHeaders().containsKey("Range");
+            if (ranged) {
+                headers.set("Content-Range", "bytes 0-" + (JPEG.length - 1) + "/" + JPEG.length);
+            }
+            exchange.sendResponseHeaders(ranged ? 206 : 200, JPEG.length);
+            exchange.getResponseBody().write(JPEG);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
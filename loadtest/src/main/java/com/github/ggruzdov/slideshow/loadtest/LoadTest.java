@@ -0,0 +1,169 @@
+package com.github.ggruzdov.slideshow.loadtest;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Simulates a fleet of players against a running application:
+ * every player loops over conditional GET of its ordered slideshow, proof of play of the current image
+ * and a jittered think time, while a few admins append and remove images of random slideshows.
+ * Images are served by ImageStub, so validation doesn't depend on MinIO.
+ * Every player and admin is a virtual thread.
+ */
+public class LoadTest {
+
+    private static final int IMAGE_DURATION = 10;
+
+    private final LoadTestConfig config;
+    private final Metrics metrics = new Metrics();
+    private final ApiClient api;
+    // Setup requests are kept out of the report
+    private final ApiClient setupApi;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private volatile boolean running = true;
+
+    LoadTest(LoadTestConfig config) {
+        this.config = config;
+        this.api = new ApiClient(config, metrics);
+        this.setupApi = new ApiClient(config, new Metrics());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(LoadTestConfig.parse(args)).run();
+    }
+
+    void run() throws Exception {
+        try (var stub = new ImageStub(config.stubPort()); var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.out.printf("Preparing %d slideshows of %d images and %d pool images, run %s%n",
+                config.slideshows(), config.imagesPerSlideshow(), config.poolImages(), runId);
+            var slideshowIds = createAll(executor, config.slideshows(), i -> setupApi.createSlideshow(
+                IntStream.range(0, config.imagesPerSlideshow()).mapToObj(j -> imageUrl("s" + i + "-" + j)).toList(), IMAGE_DURATION
+            ));
+            var poolImageIds = createAll(executor, config.poolImages(), i -> setupApi.createImage(imageUrl("p" + i), IMAGE_DURATION));
+            if (slideshowIds.isEmpty()) {
+                throw new IllegalStateException("No slideshow was created, check that the application can reach the stub");
+            }
+
+            System.out.printf("Running %d players and %d admins for %s%n", config.players(), config.admins(), config.duration());
+            var startedAt = System.nanoTime();
+            var rampUpStep = config.rampUp().toNanos() / Math.max(config.players(), 1);
+            for (int i = 0; i < config.players(); i++) {
+                var slideshowId = slideshowIds.get(i % slideshowIds.size());
+                var delay = rampUpStep * i;
+                executor.submit(() -> play(slideshowId, delay));
+            }
+            for (int i = 0; i < config.admins(); i++) {
+                var images = new ArrayList<Integer>();
+                for (int j = i; j < poolImageIds.size(); j += config.admins()) {
+                    images.add(poolImageIds.get(j));
+                }
+                executor.submit(() -> administrate(slideshowIds, images));
+            }
+
+            var deadline = startedAt + config.duration().toNanos();
+            var lastTotal = 0L;
+            while (System.nanoTime() < deadline) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(TimeUnit.SECONDS.toNanos(10), deadline - System.nanoTime()));
+                var total = metrics.total();
+                System.out.printf("%4ds: %d requests, %.1f rps%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt), total, (total - lastTotal) / 10.0);
+                lastTotal = total;
+            }
+            running = false;
+            var elapsed = System.nanoTime() - startedAt;
+            executor.shutdownNow();
+
+            System.out.println();
+            metrics.report(System.out, elapsed);
+            if (config.histogramDir() != null) {
+                metrics.writeHistograms(Path.of(config.histogramDir()));
+                System.out.println("Histograms are written to " + config.histogramDir());
+            }
+        }
+    }
+
+    private void play(int slideshowId, long delayNanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(delayNanos);
+            ApiClient.Playlist playlist = null;
+            while (running) {
+                var next = api.getOrdered(slideshowId, playlist);
+                if (next != null) {
+                    playlist = next;
+                    if (playlist.currentImageId() != null) {
+                        api.proofOfPlay(slideshowId, playlist.currentImageId());
+                    }
+                }
+                think(config.thinkTime().toNanos());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Each admin owns its pool images, so admins never append the same image to the same slideshow
+    private void administrate(List<Integer> slideshowIds, List<Integer> images) {
+        var random = ThreadLocalRandom.current();
+        var appended = new ArrayDeque<int[]>();
+        try {
+            while (running && !images.isEmpty()) {
+                if (appended.isEmpty() || (appended.size() < images.size() && random.nextDouble() < config.appendRatio())) {
+                    var slideshowId = slideshowIds.get(random.nextInt(slideshowIds.size()));
+                    var imageId = images.get(appended.size());
+                    if (api.append(slideshowId, imageId)) {
+                        appended.addLast(new int[]{slideshowId, imageId});
+                    }
+                } else {
+                    var pair = appended.pollLast();
+                    if (!api.remove(pair[0], pair[1])) {
+                        appended.addLast(pair);
+                    }
+                }
+                think(config.adminThinkTime().toNanos());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void think(long meanNanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(meanNanos / 2 + ThreadLocalRandom.current().nextLong(meanNanos + 1));
+    }
+
+    private String imageUrl(String name) {
+        return "http://%s:%d/images/lt-%s-%s.jpg".formatted(config.stubHost(), config.stubPort(), runId, name);
+    }
+
+    // Creates in parallel, failed ones are skipped(and counted by metrics)
+    private static List<Integer> createAll(ExecutorService executor, int count, IntFunction<Integer> create)
+        throws InterruptedException {
+        var tasks = new ArrayList<Callable<Integer>>(count);
+        for (int i = 0; i < count; i++) {
+            var idx = i;
+            tasks.add(() -> create.apply(idx));
+        }
+
+        var ids = new ArrayList<Integer>(count);
+        for (var future : executor.invokeAll(tasks)) {
+            try {
+                if (future.get() != null) {
+                    ids.add(future.get());
+                }
+            } catch (ExecutionException e) {
+                System.err.println("Setup request failed: " + e.getCause());
+            }
+        }
+
+        return ids;
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.ggruzdov.slideshow.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options in the --name=value form, every option has a default.
+ */
+record LoadTestConfig(
+    String baseUrl,
+    // Simulated players, each one loops over "get ordered slideshow, send proof of play, think"
+    int players,
+    int slideshows,
+    int imagesPerSlideshow,
+    Duration duration,
+    // Players are started evenly within this period
+    Duration rampUp,
+    // Mean pause between player cycles, the actual one is jittered by +-50%
+    Duration thinkTime,
+    // Admins append and remove images of random slideshows
+    int admins,
+    Duration adminThinkTime,
+    // Share of appends among admin mutations, the rest are removes of previously appended images
+    double appendRatio,
+    // Images created for appends
+    int poolImages,
+    // The application must be able to reach the stub by this host(e.g. host.docker.internal)
+    String stubHost,
+    int stubPort,
+    Duration requestTimeout,
+    // If set, HdrHistogram percentile distributions(.hgrm) are written there
+    String histogramDir
+) {
+
+    static LoadTestConfig parse(String[] args) {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            var idx = arg.indexOf('=');
+            options.put(arg.substring(2, idx), arg.substring(idx + 1));
+        }
+
+        var config = new LoadTestConfig(
+            string(options, "base-url", "http://localhost:8080"),
+            integer(options, "players", 1000),
+            integer(options, "slideshows", 50),
+            integer(options, "images-per-slideshow", 10),
+            duration(options, "duration", "60s"),
+            duration(options, "ramp-up", "10s"),
+            duration(options, "think-time", "3s"),
+            integer(options, "admins", 2),
+            duration(options, "admin-think-time", "1s"),
+            Double.parseDouble(string(options, "append-ratio", "0.5")),
+            integer(options, "pool-images", 100),
+            string(options, "stub-host", "localhost"),
+            integer(options, "stub-port", 9100),
+            duration(options, "request-timeout", "10s"),
+            string(options, "histogram-dir", null)
+        );
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + options.keySet());
+        }
+
+        return config;
+    }
+
+    private static String string(Map<String, String> options, String name, String defaultValue) {
+        var value = options.remove(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static int integer(Map<String, String> options, String name, int defaultValue) {
+        var value = options.remove(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    // Accepts the Spring like short form: 500ms, 3s, 5m
+    private static Duration duration(Map<String, String> options, String name, String defaultValue) {
+        var value = string(options, name, defaultValue);
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+
+        return Duration.parse(value);
+    }
+}
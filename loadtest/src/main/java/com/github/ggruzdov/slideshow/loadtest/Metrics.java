@@ -0,0 +1,105 @@
+package com.github.ggruzdov.slideshow.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms(microseconds) and outcome counters per operation.
+ */
+final class Metrics {
+
+    enum Outcome {
+        OK,
+        // 409, optimistic locking retries were exhausted
+        CONFLICT,
+        // 503, e.g. the proof-of-play buffer is full
+        OVERLOADED,
+        // No response within the request timeout
+        TIMEOUT,
+        ERROR
+    }
+
+    private final Map<String, Operation> operations = new ConcurrentSkipListMap<>();
+    // Failures by operation and HTTP status(or exception), to see what the errors actually are
+    private final Map<String, LongAdder> failures = new ConcurrentSkipListMap<>();
+
+    void record(String operation, long startedAtNanos, Outcome outcome, String failure) {
+        var op = operations.computeIfAbsent(operation, it -> new Operation());
+        op.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAtNanos));
+        op.outcomes[outcome.ordinal()].increment();
+        if (outcome != Outcome.OK) {
+            failures.computeIfAbsent(operation + " " + failure, it -> new LongAdder()).increment();
+        }
+    }
+
+    long total() {
+        return operations.values().stream().mapToLong(Operation::count).sum();
+    }
+
+    void report(PrintStream out, long elapsedNanos) {
+        var seconds = elapsedNanos / 1e9;
+        out.printf("%-20s %9s %9s %9s %9s %9s %9s %9s %8s %9s %8s%n",
+            "operation", "count", "rps", "p50,ms", "p90,ms", "p99,ms", "p99.9,ms", "max,ms", "errors", "conflicts", "timeouts");
+        operations.forEach((name, op) -> {
+            var latency = op.latency;
+            var count = op.count();
+            out.printf("%-20s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7.2f%% %8.2f%% %7.2f%%%n",
+                name, count, count / seconds,
+                millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9), latency.getMaxValue() / 1000.0,
+                rate(op, Outcome.ERROR) + rate(op, Outcome.OVERLOADED), rate(op, Outcome.CONFLICT), rate(op, Outcome.TIMEOUT));
+        });
+
+        if (!failures.isEmpty()) {
+            out.println();
+            out.println("Failures:");
+            failures.forEach((failure, count) -> out.printf("  %-50s %d%n", failure, count.sum()));
+        }
+    }
+
+    void writeHistograms(Path dir) throws FileNotFoundException {
+        dir.toFile().mkdirs();
+        for (var entry : operations.entrySet()) {
+            try (var out = new PrintStream(dir.resolve(entry.getKey() + ".hgrm").toFile())) {
+                // Scaled to milliseconds
+                entry.getValue().latency.copy().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static double rate(Operation op, Outcome outcome) {
+        var count = op.count();
+        return count == 0 ? 0 : op.outcomes[outcome.ordinal()].sum() * 100.0 / count;
+    }
+
+    private static final class Operation {
+
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+
+        private Operation() {
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+        }
+
+        private long count() {
+            long count = 0;
+            for (var outcome : outcomes) {
+                count += outcome.sum();
+            }
+            return count;
+        }
+    }
+}
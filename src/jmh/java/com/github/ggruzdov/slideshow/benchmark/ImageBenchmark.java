@@ -0,0 +1,39 @@
+package com.github.ggruzdov.slideshow.benchmark;
+
+import com.github.ggruzdov.slideshow.model.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image name derivation from URL in the Image constructor, it runs for every added and imported image.
+ * Run with -prof gc to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ImageBenchmark {
+
+    @Param({
+        "http://minio:9000/images/tree.jpg",
+        "https://cdn.example.com/media/2024/03/01/Sunset-Over-The-Mountain-Lake.final.webp"
+    })
+    private String url;
+
+    @Benchmark
+    public Image create() {
+        return new Image(url, 20);
+    }
+}
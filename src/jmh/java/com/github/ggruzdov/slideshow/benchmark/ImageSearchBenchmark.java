@@ -0,0 +1,131 @@
+package com.github.ggruzdov.slideshow.benchmark;
+
+import com.github.ggruzdov.slideshow.component.ImageNameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory ImageNameIndex vs SQL LIKE search over the same names.
+ * The SQL side uses a temporary copy of the images table(with the same name btree index)
+ * in the local Postgres from compose-infra.yml, connection settings can be overridden
+ * by benchmark.jdbc.url, benchmark.jdbc.user and benchmark.jdbc.password system properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ImageSearchBenchmark {
+
+    private static final String[] WORDS = {
+        "mountain", "lake", "beach", "birds", "butterfly", "tree", "forest", "river", "sunset", "city",
+        "night", "snow", "desert", "ocean", "flower", "garden", "bridge", "castle", "island", "road"
+    };
+
+    private static final int LIMIT = 50;
+
+    @Param({"200000"})
+    private int images;
+
+    @Param({"PREFIX", "SUBSTRING"})
+    private String mode;
+
+    private String query;
+    private ImageNameIndex index;
+    private Connection connection;
+    private PreparedStatement sqlSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        query = "PREFIX".equals(mode) ? "moun" : "lake";
+        var names = generateNames();
+
+        index = new ImageNameIndex(null);
+        for (int id = 0; id < names.size(); id++) {
+            index.add(id, names.get(id));
+        }
+
+        connection = DriverManager.getConnection(
+            System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/slideshow"),
+            System.getProperty("benchmark.jdbc.user", "admin"),
+            System.getProperty("benchmark.jdbc.password", "password")
+        );
+        try (var st = connection.createStatement()) {
+            st.execute("CREATE TEMP TABLE images_bench (id INTEGER PRIMARY KEY, name VARCHAR NOT NULL)");
+        }
+        try (var insert = connection.prepareStatement("INSERT INTO images_bench (id, name) VALUES (?, ?)")) {
+            for (int id = 0; id < names.size(); id++) {
+                insert.setInt(1, id);
+                insert.setString(2, names.get(id));
+                insert.addBatch();
+                if (id % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        try (var st = connection.createStatement()) {
+            st.execute("CREATE INDEX images_bench_name_idx ON images_bench (name)");
+            st.execute("ANALYZE images_bench");
+        }
+
+        sqlSearch = connection.prepareStatement("SELECT id FROM images_bench WHERE name LIKE ? ORDER BY id LIMIT " + LIMIT);
+        sqlSearch.setString(1, "PREFIX".equals(mode) ? query + "%" : "%" + query + "%");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public List<Integer> index() {
+        return "PREFIX".equals(mode)
+            ? index.searchByPrefix(query, 0, LIMIT)
+            : index.searchBySubstring(query, 0, LIMIT);
+    }
+
+    @Benchmark
+    public List<Integer> sql() throws SQLException {
+        var ids = new ArrayList<Integer>(LIMIT);
+        try (var rs = sqlSearch.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+
+        return ids;
+    }
+
+    // Names look like the ones derived from URLs, e.g. "sunset-lake-1234"
+    private List<String> generateNames() {
+        var random = new Random(42);
+        var names = new ArrayList<String>(images);
+        for (int i = 0; i < images; i++) {
+            names.add(WORDS[random.nextInt(WORDS.length)] + "-" + WORDS[random.nextInt(WORDS.length)] + "-" + i);
+        }
+
+        return names;
+    }
+}
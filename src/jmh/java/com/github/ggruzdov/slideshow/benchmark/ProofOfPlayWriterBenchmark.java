@@ -0,0 +1,93 @@
+package com.github.ggruzdov.slideshow.benchmark;
+
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
+import com.github.ggruzdov.slideshow.repository.ProofOfPlayCopyWriter;
+import com.github.ggruzdov.slideshow.repository.ProofOfPlayJdbcRepository;
+import com.github.ggruzdov.slideshow.repository.ProofOfPlayWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput of a batch of proof-of-play events: JDBC batch inserts vs binary COPY.
+ * Writes go to proofs_of_play of the local Postgres from compose-infra.yml(start the application once
+ * to migrate it), every invocation is rolled back, so the table isn't changed.
+ * Connection settings can be overridden by benchmark.jdbc.* system properties(see ImageSearchBenchmark).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProofOfPlayWriterBenchmark {
+
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    @Param({"500", "5000"})
+    private int events;
+
+    @Param({"BATCH", "COPY"})
+    private String writerType;
+
+    private Connection connection;
+    private ProofOfPlayWriter writer;
+    private List<ProofOfPlayEvent> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+            System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/slideshow?reWriteBatchedInserts=true"),
+            System.getProperty("benchmark.jdbc.user", "admin"),
+            System.getProperty("benchmark.jdbc.password", "password")
+        );
+        connection.setAutoCommit(false);
+
+        var jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        writer = "COPY".equals(writerType) ? new ProofOfPlayCopyWriter(jdbcTemplate) : new ProofOfPlayJdbcRepository(jdbcTemplate);
+
+        var random = new Random(42);
+        var now = Instant.now();
+        batch = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            batch.add(new ProofOfPlayEvent(random.nextInt(1000), random.nextInt(100_000), now.plusMillis(i)));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() throws SQLException {
+        connection.rollback();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    // The score is a number of written batches per second, multiply it by events to get events per second
+    @Benchmark
+    public void write() {
+        writer.insertAll(batch, JDBC_BATCH_SIZE);
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.ggruzdov.slideshow.benchmark;
+
+import com.github.ggruzdov.slideshow.SlideshowApplication;
+import com.github.ggruzdov.slideshow.component.ImageUrlValidator;
+import com.github.ggruzdov.slideshow.model.ImagePage;
+import com.github.ggruzdov.slideshow.model.SlideShow;
+import com.github.ggruzdov.slideshow.request.AddImageRequest;
+import com.github.ggruzdov.slideshow.request.ImageSearchRequest;
+import com.github.ggruzdov.slideshow.request.OrderedImagesRequest;
+import com.github.ggruzdov.slideshow.response.OrderedSlideShowDetailsResponse;
+import com.github.ggruzdov.slideshow.service.SlideShowService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * SlideShowService hot paths within the whole application context(without the web server).
+ * Image validation is stubbed, so image creation measures only our code and the database.
+ * The database is the local Postgres from compose-infra.yml, connection settings can be overridden
+ * by benchmark.jdbc.* system properties(see ImageSearchBenchmark). Every trial works with its own images,
+ * they are deleted on tear down.
+ * <p>
+ * Throughput and latency percentiles are reported by the modes, run with -prof gc for the allocation rate,
+ * -p playback=MEMORY switches saveProofOfPlay to the in-memory playback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SlideShowServiceBenchmark {
+
+    private static final int SLIDESHOW_SIZE = 20;
+
+    @Param({"DATABASE"})
+    private String playback;
+
+    private ConfigurableApplicationContext context;
+    private SlideShowService slideShowService;
+    private String urlPrefix;
+    private SlideShow slideShow;
+    private List<Integer> imageIds;
+    private int played;
+    private int created;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SlideshowApplication.class, StubValidatorConfig.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.main.allow-bean-definition-overriding=true",
+                "spring.docker.compose.enabled=false",
+                "spring.jpa.show-sql=false",
+                "logging.level.root=WARN",
+                "spring.datasource.url=" + System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/slideshow"),
+                "spring.datasource.username=" + System.getProperty("benchmark.jdbc.user", "admin"),
+                "spring.datasource.password=" + System.getProperty("benchmark.jdbc.password", "password"),
+                "slideshow.playback.mode=" + playback
+            )
+            .run();
+        slideShowService = context.getBean(SlideShowService.class);
+
+        urlPrefix = "http://benchmark.local/" + System.currentTimeMillis() + "/";
+        slideShow = slideShowService.create(requests("bench-", SLIDESHOW_SIZE));
+        imageIds = slideShowService.getOrderedSlideShow(slideShow.getId(), new OrderedImagesRequest(null, null))
+            .images()
+            .stream()
+            .map(it -> it.id())
+            .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("delete from proofs_of_play where slide_show_id = ?", slideShow.getId());
+        jdbcTemplate.update("delete from proof_of_play_rollups where slide_show_id = ?", slideShow.getId());
+        jdbcTemplate.update("""
+            with deleted as (
+                delete from slide_shows_images where image_id in (select id from images where url like ?) returning slide_show_id
+            )
+            delete from slide_shows where id in (select slide_show_id from deleted)
+            """, urlPrefix + "%");
+        jdbcTemplate.update("delete from images where url like ?", urlPrefix + "%");
+        context.close();
+    }
+
+    // Plays the slide show in order, so every event switches the current image
+    @Benchmark
+    public void saveProofOfPlay() {
+        slideShowService.saveProofOfPlay(slideShow.getId(), imageIds.get(played++ % imageIds.size()));
+    }
+
+    // Served from the ordered-slideshows cache unless a proof of play was saved in DATABASE mode
+    @Benchmark
+    public OrderedSlideShowDetailsResponse getOrderedSlideShow() {
+        return slideShowService.getOrderedSlideShow(slideShow.getId(), new OrderedImagesRequest(null, null));
+    }
+
+    @Benchmark
+    public OrderedSlideShowDetailsResponse getOrderedSlideShowPage() {
+        return slideShowService.getOrderedSlideShow(slideShow.getId(), new OrderedImagesRequest(4, 10));
+    }
+
+    @Benchmark
+    public ImagePage searchImages(Search search) {
+        return slideShowService.searchImages(search.request);
+    }
+
+    @Benchmark
+    public SlideShow create(Create create) {
+        return slideShowService.create(requests("created-" + created++ + "-", create.images));
+    }
+
+    private List<AddImageRequest> requests(String namePrefix, int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> new AddImageRequest(urlPrefix + namePrefix + i + ".jpg", 10))
+            .toList();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Search {
+
+        @Param({"EXACT", "PREFIX", "SUBSTRING"})
+        private ImageSearchRequest.Mode mode;
+
+        private ImageSearchRequest request;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            var name = switch (mode) {
+                case EXACT -> "bench-7";
+                case PREFIX -> "bench-1";
+                case SUBSTRING -> "nch-1";
+            };
+            request = new ImageSearchRequest(name, mode, 0, 50);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Create {
+
+        @Param({"10", "100"})
+        private int images;
+    }
+
+    @Configuration
+    static class StubValidatorConfig {
+
+        // Overrides CachingImageUrlValidator, so images are never requested
+        @Bean
+        @Primary
+        ImageUrlValidator cachingImageUrlValidator() {
+            return url -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.ggruzdov.slideshow.config.ImageValidationProperties;
+import com.github.ggruzdov.slideshow.exceptions.InvalidImageException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches validation results of ImageUrlValidatorImpl by normalized URL, the same URL often comes
+ * several times within a bulk import or a retried request.
+ * Concurrent validations of the same URL are collapsed into one request(single-flight): the first caller
+ * starts the validation in a separate virtual thread and all the callers wait for its result. The validation
+ * isn't bound to the first caller's thread, so cancelling that caller(e.g. when another image of its slideshow
+ * is invalid) doesn't fail the others.
+ */
+@Slf4j
+@Primary
+@Component
+public class CachingImageUrlValidator implements ImageUrlValidator {
+
+    private final ImageUrlValidatorImpl delegate;
+    private final ImageValidationProperties properties;
+    private final AsyncCache<String, Result> results;
+
+    public CachingImageUrlValidator(ImageUrlValidatorImpl delegate, ImageValidationProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.results = Caffeine.newBuilder()
+            .maximumSize(properties.cacheMaximumSize())
+            .expireAfter(new ResultExpiry(properties))
+            .recordStats()
+            .buildAsync();
+        // The same tag keys as of the Spring managed caches, otherwise Prometheus rejects one of them
+        CaffeineCacheMetrics.monitor(meterRegistry, results.synchronous(), "image-validations", "cache.manager", "none", "name", "image-validations");
+    }
+
+    @Override
+    public void validate(String url) throws InvalidImageException {
+        if (!properties.cacheEnabled()) {
+            delegate.validate(url);
+            return;
+        }
+
+        var inFlight = new CompletableFuture<Result>();
+        var future = results.get(normalize(url), (key, executor) -> inFlight);
+        var result = future == inFlight ? validate(url, inFlight) : await(future);
+        if (!result.isValid()) {
+            throw new InvalidImageException(result.error());
+        }
+    }
+
+    // Failed futures are removed from the cache by Caffeine, so transient errors are retried by the next caller
+    private Result validate(String url, CompletableFuture<Result> inFlight) {
+        Thread.ofVirtual().name("image-validation-single-flight").start(() -> {
+            try {
+                delegate.validate(url);
+                inFlight.complete(Result.VALID);
+            } catch (InvalidImageException e) {
+                inFlight.complete(new Result(e.getMessage()));
+            } catch (RuntimeException e) {
+                inFlight.completeExceptionally(e);
+            }
+        });
+
+        return await(inFlight);
+    }
+
+    // Interruptible, so a cancelled caller stops waiting while the validation goes on for the others
+    private Result await(CompletableFuture<Result> inFlight) {
+        try {
+            return inFlight.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for image validation");
+        }
+    }
+
+    // Scheme and host are case insensitive, default ports and fragments don't change the resource
+    static String normalize(String url) {
+        try {
+            var uri = new URI(url.trim()).normalize();
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return url;
+            }
+
+            var scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            var port = uri.getPort();
+            var defaultPort = ("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443);
+            return scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT)
+                + (port == -1 || defaultPort ? "" : ":" + port)
+                + (uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath())
+                + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        } catch (URISyntaxException e) {
+            return url;
+        }
+    }
+
+    // Caffeine applies the expiry once the in-flight future is completed
+    private record ResultExpiry(ImageValidationProperties properties) implements Expiry<String, Result> {
+
+        @Override
+        public long expireAfterCreate(String url, Result result, long currentTime) {
+            return (result.isValid() ? properties.positiveTtl() : properties.negativeTtl()).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String url, Result result, long currentTime, long currentDuration) {
+            return expireAfterCreate(url, result, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String url, Result result, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private record Result(String error) {
+
+        private static final Result VALID = new Result(null);
+
+        private boolean isValid() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.slideshow.config.InvalidationProperties;
+import com.github.ggruzdov.slideshow.event.CachesResetEvent;
+import com.github.ggruzdov.slideshow.event.ChangeNotification;
+import com.github.ggruzdov.slideshow.event.ChangeNotification.Type;
+import com.github.ggruzdov.slideshow.event.ImagesChangedEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent.Change;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Cross-instance invalidation bus on Postgres LISTEN/NOTIFY.
+ * <ul>
+ * <li>Outgoing: SlideShowChangedEvent and ImagesChangedEvent are collected after commit, coalesced and sent every
+ * flush interval by a single pg_notify statement, ids are chunked to fit the payload limit.</li>
+ * <li>Incoming: a dedicated connection(outside of the pool) listens to the channel, notifications of other instances
+ * received together are coalesced and republished as local events, so the ordered slide shows cache, ETags,
+ * the image name index and SSE subscribers are updated the same way as after local changes.
+ * In MEMORY playback mode slide shows changed elsewhere are unloaded.</li>
+ * </ul>
+ * Notifications sent while the connection is lost are missed, so after reconnecting CachesResetEvent is published.
+ * Changes committed right before a crash of the sending instance are not propagated at all, the caches expire anyway.
+ * Image validation results are not invalidated, they depend on the URLs only.
+ */
+@Slf4j
+@Component
+public class ChangeNotifier {
+
+    // Up to 11 characters per id, so the payload stays below 8000 bytes
+    private static final int MAX_IDS_PER_NOTIFICATION = 500;
+
+    private static final String NOTIFY_SQL = "select pg_notify(?, payload) from unnest(?) as payload";
+
+    private static final String IMAGE_NAMES_SQL = "select id, name from images where id = any(?)";
+
+    private final InvalidationProperties properties;
+    private final JdbcConnectionDetails connectionDetails;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlaybackEngine playbackEngine;
+    private final String node = UUID.randomUUID().toString();
+    private final Counter sent;
+    private final Counter received;
+    private final Counter resets;
+
+    // Outgoing changes, guarded by this
+    private Map<Integer, Change> pendingSlideShows = new HashMap<>();
+    private Set<Integer> pendingCreatedImages = new HashSet<>();
+    private Set<Integer> pendingDeletedImages = new HashSet<>();
+
+    private volatile Thread listener;
+    private volatile boolean running;
+
+    public ChangeNotifier(
+        InvalidationProperties properties,
+        JdbcConnectionDetails connectionDetails,
+        JdbcTemplate jdbcTemplate,
+        ObjectMapper objectMapper,
+        ApplicationEventPublisher eventPublisher,
+        PlaybackEngine playbackEngine,
+        MeterRegistry meterRegistry
+    ) {
+        this.properties = properties;
+        this.connectionDetails = connectionDetails;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.playbackEngine = playbackEngine;
+        this.sent = meterRegistry.counter("slideshow.invalidation.notifications", "direction", "sent");
+        this.received = meterRegistry.counter("slideshow.invalidation.notifications", "direction", "received");
+        this.resets = meterRegistry.counter("slideshow.invalidation.resets");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlideShowChanged(SlideShowChangedEvent event) {
+        if (!properties.enabled() || isRemote()) {
+            return;
+        }
+
+        synchronized (this) {
+            event.slideShowIds().forEach(id -> pendingSlideShows.merge(id, event.change(), Change::merge));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImagesChanged(ImagesChangedEvent event) {
+        if (!properties.enabled() || isRemote()) {
+            return;
+        }
+
+        synchronized (this) {
+            pendingCreatedImages.addAll(event.created().keySet());
+            // An image created and deleted within the same flush interval is just deleted
+            pendingCreatedImages.removeAll(event.deletedIds());
+            pendingDeletedImages.addAll(event.deletedIds());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${slideshow.invalidation.flush-interval:50ms}")
+    public void flush() {
+        Map<Integer, Change> slideShows;
+        Set<Integer> createdImages;
+        Set<Integer> deletedImages;
+        synchronized (this) {
+            if (pendingSlideShows.isEmpty() && pendingCreatedImages.isEmpty() && pendingDeletedImages.isEmpty()) {
+                return;
+            }
+
+            slideShows = pendingSlideShows;
+            createdImages = pendingCreatedImages;
+            deletedImages = pendingDeletedImages;
+            pendingSlideShows = new HashMap<>();
+            pendingCreatedImages = new HashSet<>();
+            pendingDeletedImages = new HashSet<>();
+        }
+
+        var payloads = new ArrayList<String>();
+        byChange(slideShows).forEach((change, ids) -> addPayloads(payloads, Type.valueOf(change.name()), ids));
+        addPayloads(payloads, Type.IMAGES_CREATED, createdImages);
+        addPayloads(payloads, Type.IMAGES_DELETED, deletedImages);
+        try {
+            jdbcTemplate.query(
+                NOTIFY_SQL,
+                ps -> {
+                    ps.setString(1, properties.channel());
+                    ps.setArray(2, ps.getConnection().createArrayOf("text", payloads.toArray()));
+                },
+                rs -> {
+                }
+            );
+            sent.increment(payloads.size());
+        } catch (DataAccessException e) {
+            // Other instances will serve stale data till their caches expire
+            log.error("Failed to send change notifications, slide shows = {}, images = {}", slideShows.size(), createdImages.size() + deletedImages.size(), e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        running = true;
+        listener = Thread.ofPlatform().name("change-notifications-listener").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void listen() {
+        var backoff = properties.reconnectBackoff();
+        var reconnecting = false;
+        while (running) {
+            try (var connection = connect()) {
+                log.info("Listening to change notifications, channel = {}", properties.channel());
+                backoff = properties.reconnectBackoff();
+                if (reconnecting) {
+                    reset();
+                }
+                reconnecting = true;
+                poll(connection);
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+
+                log.warn("Change notifications connection failed, reconnecting in {}: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                var doubled = backoff.multipliedBy(2);
+                backoff = doubled.compareTo(properties.maxReconnectBackoff()) > 0 ? properties.maxReconnectBackoff() : doubled;
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        var connection = DriverManager.getConnection(connectionDetails.getJdbcUrl(), connectionDetails.getUsername(), connectionDetails.getPassword());
+        try (var statement = connection.createStatement()) {
+            // Quoted, so the channel name is case sensitive the same way as in pg_notify
+            statement.execute("listen " + connection.unwrap(PGConnection.class).escapeIdentifier(properties.channel()));
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    // A silently dropped connection is detected by the validity check after a quiet keepalive interval
+    private void poll(Connection connection) throws SQLException {
+        var pgConnection = connection.unwrap(PGConnection.class);
+        var timeout = (int) properties.keepaliveInterval().toMillis();
+        while (running) {
+            var notifications = pgConnection.getNotifications(timeout);
+            if (notifications != null && notifications.length > 0) {
+                apply(notifications);
+            } else if (!connection.isValid((int) Math.max(1, properties.keepaliveInterval().toSeconds()))) {
+                throw new SQLException("Connection is not valid");
+            }
+        }
+    }
+
+    private void apply(PGNotification[] notifications) {
+        var slideShows = new HashMap<Integer, Change>();
+        var createdImages = new HashSet<Integer>();
+        var deletedImages = new HashSet<Integer>();
+        for (var it : notifications) {
+            ChangeNotification notification;
+            try {
+                notification = objectMapper.readValue(it.getParameter(), ChangeNotification.class);
+            } catch (JsonProcessingException e) {
+                log.warn("Malformed change notification is skipped: {}", it.getParameter());
+                continue;
+            }
+
+            if (node.equals(notification.node())) {
+                continue;
+            }
+
+            received.increment();
+            switch (notification.type()) {
+                case IMAGES_CREATED -> createdImages.addAll(notification.ids());
+                case IMAGES_DELETED -> deletedImages.addAll(notification.ids());
+                default -> {
+                    var change = Change.valueOf(notification.type().name());
+                    notification.ids().forEach(id -> slideShows.merge(id, change, Change::merge));
+                }
+            }
+        }
+
+        try {
+            if (!createdImages.isEmpty() || !deletedImages.isEmpty()) {
+                createdImages.removeAll(deletedImages);
+                eventPublisher.publishEvent(new ImagesChangedEvent(imageNames(createdImages), deletedImages));
+            }
+
+            byChange(slideShows).forEach((change, ids) -> {
+                // The slide show is reloaded on the next play, a current image switched elsewhere is ignored(see PlaybackProperties)
+                if (change != Change.CURRENT_IMAGE) {
+                    ids.forEach(playbackEngine::evict);
+                }
+                eventPublisher.publishEvent(new SlideShowChangedEvent(ids, change));
+            });
+            log.debug("Change notifications applied, slide shows = {}, images = {}", slideShows.size(), createdImages.size() + deletedImages.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to apply change notifications", e);
+            reset();
+        }
+    }
+
+    private void reset() {
+        log.info("Change notifications might have been missed, resetting local caches");
+        resets.increment();
+        try {
+            eventPublisher.publishEvent(new CachesResetEvent());
+        } catch (RuntimeException e) {
+            log.error("Failed to reset local caches", e);
+        }
+    }
+
+    private Map<Integer, String> imageNames(Collection<Integer> imageIds) {
+        if (imageIds.isEmpty()) {
+            return Map.of();
+        }
+
+        var names = new HashMap<Integer, String>();
+        jdbcTemplate.query(
+            IMAGE_NAMES_SQL,
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", imageIds.toArray())),
+            rs -> {
+                names.put(rs.getInt("id"), rs.getString("name"));
+            }
+        );
+
+        return names;
+    }
+
+    private void addPayloads(List<String> payloads, Type type, Collection<Integer> ids) {
+        var list = List.copyOf(ids);
+        for (int from = 0; from < list.size(); from += MAX_IDS_PER_NOTIFICATION) {
+            var chunk = list.subList(from, Math.min(from + MAX_IDS_PER_NOTIFICATION, list.size()));
+            try {
+                payloads.add(objectMapper.writeValueAsString(new ChangeNotification(node, type, chunk)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // Remote changes are republished by the listener thread, they must not be sent back
+    private boolean isRemote() {
+        return Thread.currentThread() == listener;
+    }
+
+    private static Map<Change, List<Integer>> byChange(Map<Integer, Change> slideShows) {
+        var result = new EnumMap<Change, List<Integer>>(Change.class);
+        slideShows.forEach((id, change) -> result.computeIfAbsent(change, it -> new ArrayList<>()).add(id));
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.slideshow.config.OutboxProperties;
+import com.github.ggruzdov.slideshow.model.OutboxEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends events to an NDJSON file, one event per line. A batch is encoded outside of the lock
+ * and written by a single append followed by fsync, so lines of concurrent workers are never interleaved.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "slideshow.outbox.sink", havingValue = "file", matchIfMissing = true)
+public class FileOutboxSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FileOutboxSink(OutboxProperties properties, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        var parent = properties.file().toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(properties.file(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.info("Outbox events are appended to {}", properties.file().toAbsolutePath());
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) throws IOException {
+        var out = new ByteArrayOutputStream(events.size() * 128);
+        for (var event : events) {
+            objectMapper.writeValue(out, event);
+            out.write('\n');
+        }
+
+        var buffer = ByteBuffer.wrap(out.toByteArray());
+        lock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.ggruzdov.slideshow.config.ImageValidationProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits concurrent requests to the same host, so a large slideshow(or a slow host) doesn't flood
+ * a single storage with hundreds of parallel requests once validations run on virtual threads.
+ * URLs are passed by clients, so a host's semaphore is removed once no request uses it(see HostPermits).
+ * Active and waiting requests per host are exposed as image.validation.host.active/waiting gauges,
+ * with virtual threads that is the saturation of the validation executor.
+ * URLs are passed by clients, so only the first maxTaggedHosts hosts get their own metric tags,
+ * the others are tagged as "other"(see hostTag) and have no gauges.
+ */
+@Component
+@RequiredArgsConstructor
+public class HostConcurrencyLimiter {
+
+    public static final String OTHER_HOST = "other";
+
+    private final ImageValidationProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, HostPermits> permits = new ConcurrentHashMap<>();
+    private final Set<String> taggedHosts = ConcurrentHashMap.newKeySet();
+
+    public <T> T execute(String url, Supplier<T> request) {
+        var host = host(url);
+        var semaphore = permits.compute(host, (key, it) -> (it == null ? newPermits(key) : it).enter()).semaphore;
+        try {
+            if (!semaphore.tryAcquire(properties.hostPermitTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new ResourceAccessException("Too many concurrent requests to " + host);
+            }
+
+            try {
+                return request.get();
+            } finally {
+                semaphore.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for a request permit to " + host);
+        } finally {
+            // Nobody holds or waits for a permit once the last request leaves, so the semaphore can be dropped
+            permits.computeIfPresent(host, (key, it) -> it.leave() ? null : it);
+        }
+    }
+
+    public String hostTag(String url) {
+        return tag(host(url));
+    }
+
+    private String tag(String host) {
+        if (taggedHosts.contains(host)) {
+            return host;
+        }
+
+        // Racing hosts may exceed the limit slightly, that is fine for a cardinality bound
+        if (taggedHosts.size() < properties.maxTaggedHosts()) {
+            if (taggedHosts.add(host)) {
+                registerGauges(host);
+            }
+            return host;
+        }
+
+        return OTHER_HOST;
+    }
+
+    private HostPermits newPermits(String host) {
+        tag(host);
+        return new HostPermits(new Semaphore(properties.maxConcurrencyPerHost(), true));
+    }
+
+    // Gauges look up the current semaphore, since it is dropped and created again as requests come and go
+    private void registerGauges(String host) {
+        Gauge.builder("image.validation.host.active", () -> {
+                var it = permits.get(host);
+                return it == null ? 0 : properties.maxConcurrencyPerHost() - it.semaphore.availablePermits();
+            })
+            .tag("host", host)
+            .register(meterRegistry);
+        Gauge.builder("image.validation.host.waiting", () -> {
+                var it = permits.get(host);
+                return it == null ? 0 : it.semaphore.getQueueLength();
+            })
+            .tag("host", host)
+            .register(meterRegistry);
+    }
+
+    static String host(String url) {
+        try {
+            var uri = URI.create(url);
+            return uri.getHost() == null ? url : uri.getHost().toLowerCase() + ":" + uri.getPort();
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    // Requests that entered and not yet left are counted, the count is changed within the map compute only
+    private static final class HostPermits {
+
+        private final Semaphore semaphore;
+        private int requests;
+
+        private HostPermits(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        private HostPermits enter() {
+            requests++;
+            return this;
+        }
+
+        private boolean leave() {
+            return --requests == 0;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.ggruzdov.slideshow.event.CachesResetEvent;
+import com.github.ggruzdov.slideshow.event.ImagesChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory trigram index over image names for prefix and substring search.
+ * Every name is split into trigrams and each trigram keeps a sorted array of image ids(a posting list).
+ * Names are padded with two spaces at the start(the way pg_trgm does), so short prefixes are indexed as well.
+ * A search walks the shortest posting list of the query trigrams starting right after the cursor id
+ * and checks the candidates by their names, results are ordered by image id.
+ * <p>
+ * The index is built on startup and kept up to date by ImagesChangedEvent, until it is built
+ * search falls back to SQL.
+ */
+@Slf4j
+@Component
+public class ImageNameIndex {
+
+    private static final String PADDING = "  ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, String> names = new HashMap<>();
+    private final Map<String, Posting> postings = new HashMap<>();
+    private final Posting allIds = new Posting();
+    private volatile boolean ready;
+
+    public ImageNameIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        var startedAt = System.currentTimeMillis();
+        jdbcTemplate.query("select id, name from images", rs -> {
+            add(rs.getInt("id"), rs.getString("name"));
+        });
+        ready = true;
+        log.info("Image name index is built, images = {}, time = {}ms", size(), System.currentTimeMillis() - startedAt);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImagesChanged(ImagesChangedEvent event) {
+        event.created().forEach(this::add);
+        event.deletedIds().forEach(this::remove);
+    }
+
+    // Brings the index in line with the table, only the differences are reindexed
+    @EventListener
+    public void onCachesReset(CachesResetEvent event) {
+        if (!ready) {
+            return;
+        }
+
+        var actual = new HashMap<Integer, String>();
+        jdbcTemplate.query("select id, name from images", rs -> {
+            actual.put(rs.getInt("id"), rs.getString("name"));
+        });
+
+        lock.writeLock().lock();
+        try {
+            new ArrayList<>(names.keySet()).stream().filter(id -> !actual.containsKey(id)).forEach(this::remove);
+            actual.forEach((id, name) -> {
+                if (!name.equals(names.get(id))) {
+                    add(id, name);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Image name index is resynchronized, images = {}", size());
+    }
+
+    public void add(int id, String name) {
+        lock.writeLock().lock();
+        try {
+            var previous = names.put(id, name);
+            if (previous != null) {
+                trigrams(PADDING + previous).forEach(gram -> removeFromPosting(gram, id));
+            }
+
+            allIds.add(id);
+            trigrams(PADDING + name).forEach(gram -> postings.computeIfAbsent(gram, it -> new Posting()).add(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            var name = names.remove(id);
+            if (name != null) {
+                allIds.remove(id);
+                trigrams(PADDING + name).forEach(gram -> removeFromPosting(gram, id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param prefix lower case name prefix
+     * @param afterId keyset cursor, only ids greater than it are returned
+     * @return ids of matching images ordered by id
+     */
+    public List<Integer> searchByPrefix(String prefix, int afterId, int limit) {
+        return search(PADDING + prefix, name -> name.startsWith(prefix), afterId, limit);
+    }
+
+    /**
+     * @param substring lower case part of the name
+     * @param afterId keyset cursor, only ids greater than it are returned
+     * @return ids of matching images ordered by id
+     */
+    public List<Integer> searchBySubstring(String substring, int afterId, int limit) {
+        return search(substring, name -> name.contains(substring), afterId, limit);
+    }
+
+    private List<Integer> search(String query, Predicate<String> matcher, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            // Queries shorter than a trigram can only be checked against every name
+            var candidates = allIds;
+            for (var gram : trigrams(query)) {
+                var posting = postings.get(gram);
+                if (posting == null) {
+                    return List.of();
+                }
+                if (posting.size < candidates.size) {
+                    candidates = posting;
+                }
+            }
+
+            var result = new ArrayList<Integer>(Math.min(limit, candidates.size));
+            for (int i = candidates.indexAfter(afterId); i < candidates.size && result.size() < limit; i++) {
+                var id = candidates.ids[i];
+                if (matcher.test(names.get(id))) {
+                    result.add(id);
+                }
+            }
+
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeFromPosting(String gram, int id) {
+        var posting = postings.get(gram);
+        if (posting != null && posting.remove(id) && posting.size == 0) {
+            postings.remove(gram);
+        }
+    }
+
+    private static Set<String> trigrams(String value) {
+        var grams = new LinkedHashSet<String>();
+        for (int i = 0; i + 3 <= value.length(); i++) {
+            grams.add(value.substring(i, i + 3));
+        }
+
+        return grams;
+    }
+
+    // Sorted array of ids. Ids come from a sequence, so adding is an append in most cases.
+    private static final class Posting {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                var idx = Arrays.binarySearch(ids, 0, size, id);
+                if (idx >= 0) {
+                    return;
+                }
+                insertAt(-idx - 1, id);
+                return;
+            }
+
+            insertAt(size, id);
+        }
+
+        private void insertAt(int idx, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, idx, ids, idx + 1, size - idx);
+            ids[idx] = id;
+            size++;
+        }
+
+        // Index of the first id greater than the given one
+        private int indexAfter(int id) {
+            var idx = Arrays.binarySearch(ids, 0, size, id);
+            return idx >= 0 ? idx + 1 : -idx - 1;
+        }
+
+        private boolean remove(int id) {
+            var idx = Arrays.binarySearch(ids, 0, size, id);
+            if (idx < 0) {
+                return false;
+            }
+
+            System.arraycopy(ids, idx + 1, ids, idx, size - idx - 1);
+            size--;
+            return true;
+        }
+    }
+}
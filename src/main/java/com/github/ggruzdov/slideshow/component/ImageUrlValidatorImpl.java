@@ -1,38 +1,163 @@
 package com.github.ggruzdov.slideshow.component;
 
+import com.github.ggruzdov.slideshow.config.ImageValidationProperties;
 import com.github.ggruzdov.slideshow.exceptions.InvalidImageException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientResponseException;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Validates an image URL without downloading the image.
+ * In RANGE mode only the first bytes are requested(Range header) and checked against JPEG, PNG and WEBP magic numbers.
+ * A server ignoring the range sends the whole body, then the connection is closed right after the first bytes are read.
+ * In HEAD mode only the response headers are checked, if the server doesn't support HEAD RANGE mode is used instead.
+ * Client errors(4xx) make the image invalid, server errors are rethrown, so they are not cached as invalid images.
+ * Validations are timed as image.validation{host, outcome}, where outcome is valid, invalid or error
+ * and host is bounded by HostConcurrencyLimiter.hostTag.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ImageUrlValidatorImpl implements ImageUrlValidator {
 
+    // Enough for all the supported signatures, WEBP is the longest one
+    private static final int SIGNATURE_LENGTH = 12;
+    private static final String SIGNATURE_RANGE = "bytes=0-" + (SIGNATURE_LENGTH - 1);
+
+    private static final List<MediaType> SUPPORTED_TYPES = List.of(
+        MediaType.IMAGE_JPEG,
+        MediaType.IMAGE_PNG,
+        MediaType.parseMediaType("image/webp"),
+        // Object storages often don't know the actual type, the content is checked anyway
+        MediaType.APPLICATION_OCTET_STREAM,
+        MediaType.parseMediaType("binary/octet-stream")
+    );
+
     private final RestClient restClient;
+    private final ImageValidationProperties properties;
+    private final HostConcurrencyLimiter hostConcurrencyLimiter;
+    private final MeterRegistry meterRegistry;
 
     @Override
     public void validate(String imageUrl) throws InvalidImageException {
-        log.debug("Validating image URL: {}", imageUrl);
+        log.debug("Validating image URL: {}, mode = {}", imageUrl, properties.mode());
+        var sample = Timer.start(meterRegistry);
+        var outcome = "error";
         try {
-            var response = restClient.get()
-                .uri(imageUrl)
-                .retrieve()
-                .toEntity(byte[].class);
-            if (!response.hasBody()) {
-                throw new InvalidImageException(imageUrl);
-            }
-        } catch (RestClientResponseException e) {
-            if (HttpStatus.NOT_FOUND.equals(e.getStatusCode())) {
-                throw new InvalidImageException("Image not found: " + imageUrl);
-            }
+            hostConcurrencyLimiter.execute(imageUrl, () -> {
+                if (properties.mode() != ImageValidationProperties.Mode.HEAD || !validateHead(imageUrl)) {
+                    validateRange(imageUrl);
+                }
+                return null;
+            });
+            outcome = "valid";
+        } catch (InvalidImageException e) {
+            outcome = "invalid";
+            throw e;
+        } finally {
+            // Includes the wait for a host permit
+            sample.stop(meterRegistry.timer("image.validation", "host", hostConcurrencyLimiter.hostTag(imageUrl), "outcome", outcome));
+        }
+    }
+
+    private void validateRange(String imageUrl) {
+        restClient.get()
+            .uri(imageUrl)
+            .header(HttpHeaders.RANGE, SIGNATURE_RANGE)
+            .exchange((request, response) -> {
+                // 416 means there is nothing to read, i.e. the image is empty
+                if (response.getStatusCode().isSameCodeAs(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)) {
+                    throw new InvalidImageException("Image is empty: " + imageUrl);
+                }
+
+                checkStatus(imageUrl, response);
+                checkHeaders(imageUrl, response.getHeaders());
+                try (var body = response.getBody()) {
+                    checkSignature(imageUrl, body.readNBytes(SIGNATURE_LENGTH));
+                }
+                return null;
+            });
+    }
+
+    // Returns false if the server doesn't support HEAD requests
+    private boolean validateHead(String imageUrl) {
+        return restClient.head()
+            .uri(imageUrl)
+            .exchange((request, response) -> {
+                var status = response.getStatusCode();
+                if (status.isSameCodeAs(HttpStatus.METHOD_NOT_ALLOWED) || status.isSameCodeAs(HttpStatus.NOT_IMPLEMENTED)) {
+                    log.debug("HEAD is not supported, falling back to range request: {}", imageUrl);
+                    return false;
+                }
+
+                checkStatus(imageUrl, response);
+                checkHeaders(imageUrl, response.getHeaders());
+                return true;
+            });
+    }
 
+    private void checkStatus(String imageUrl, ClientHttpResponse response) throws IOException {
+        var status = response.getStatusCode();
+        if (status.isSameCodeAs(HttpStatus.NOT_FOUND)) {
+            throw new InvalidImageException("Image not found: " + imageUrl);
+        }
+        if (status.is4xxClientError()) {
+            throw new InvalidImageException("Image is not available, status = " + status.value() + ": " + imageUrl);
+        }
+        if (!status.is2xxSuccessful()) {
             // Perhaps retry the request a couple of times in case of 500 errors
-            throw e;
+            throw new RestClientResponseException(
+                "Image validation failed: " + imageUrl, status, response.getStatusText(), response.getHeaders(), null, null
+            );
         }
     }
+
+    private void checkHeaders(String imageUrl, HttpHeaders headers) {
+        var contentType = headers.getContentType();
+        if (contentType != null && SUPPORTED_TYPES.stream().noneMatch(it -> it.equalsTypeAndSubtype(contentType))) {
+            throw new InvalidImageException("Unsupported content type " + contentType + ": " + imageUrl);
+        }
+
+        // For a partial response it is the length of the range, not of the image
+        if (headers.getContentLength() == 0) {
+            throw new InvalidImageException("Image is empty: " + imageUrl);
+        }
+    }
+
+    private static void checkSignature(String imageUrl, byte[] signature) {
+        if (!isJpeg(signature) && !isPng(signature) && !isWebp(signature)) {
+            throw new InvalidImageException("Unsupported image format, expected JPEG, PNG or WEBP: " + imageUrl);
+        }
+    }
+
+    private static boolean isJpeg(byte[] bytes) {
+        return startsWith(bytes, 0, (byte) 0xFF, (byte) 0xD8, (byte) 0xFF);
+    }
+
+    private static boolean isPng(byte[] bytes) {
+        return startsWith(bytes, 0, (byte) 0x89, (byte) 'P', (byte) 'N', (byte) 'G', (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A);
+    }
+
+    // RIFF container: "RIFF", 4 bytes of the size, "WEBP"
+    private static boolean isWebp(byte[] bytes) {
+        return startsWith(bytes, 0, (byte) 'R', (byte) 'I', (byte) 'F', (byte) 'F')
+            && startsWith(bytes, 8, (byte) 'W', (byte) 'E', (byte) 'B', (byte) 'P');
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte... prefix) {
+        return bytes.length >= offset + prefix.length
+            && Arrays.equals(bytes, offset, offset + prefix.length, prefix, 0, prefix.length);
+    }
 }
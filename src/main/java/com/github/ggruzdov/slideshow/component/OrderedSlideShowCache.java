@@ -0,0 +1,79 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.ggruzdov.slideshow.config.CacheConfig;
+import com.github.ggruzdov.slideshow.event.CachesResetEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent;
+import com.github.ggruzdov.slideshow.response.OrderedImageDetailsResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Ordered slide shows cache. Entries are stamped with the slide show version read before the load,
+ * an entry is put only if the version didn't change during the load and is served only while its stamp
+ * is the current version, so a read racing with a commit can't bring a stale slide show back.
+ * Entries are also evicted once changes are committed, so they don't occupy the cache till expiration.
+ */
+@Slf4j
+@Component
+public class OrderedSlideShowCache {
+
+    private final Cache cache;
+    private final SlideShowVersions slideShowVersions;
+    private final PlaybackEngine playbackEngine;
+
+    public OrderedSlideShowCache(CacheManager cacheManager, SlideShowVersions slideShowVersions, PlaybackEngine playbackEngine) {
+        this.cache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.ORDERED_SLIDESHOWS));
+        this.slideShowVersions = slideShowVersions;
+        this.playbackEngine = playbackEngine;
+    }
+
+    public List<OrderedImageDetailsResponse> get(Integer slideShowId, Supplier<List<OrderedImageDetailsResponse>> loader) {
+        var version = version(slideShowId);
+        var cached = cache.get(slideShowId, Entry.class);
+        if (cached != null && cached.version() == version) {
+            return cached.images();
+        }
+
+        var images = loader.get();
+        if (version(slideShowId) == version) {
+            cache.put(slideShowId, new Entry(version, images));
+        } else {
+            log.debug("Ordered slide show changed while loading, not cached, id = {}", slideShowId);
+        }
+
+        return images;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlideShowChanged(SlideShowChangedEvent event) {
+        // In MEMORY playback mode the current image isn't taken from the cache at all
+        if (event.change() == SlideShowChangedEvent.Change.CURRENT_IMAGE && playbackEngine.isEnabled()) {
+            return;
+        }
+
+        event.slideShowIds().forEach(cache::evict);
+        log.debug("Evicted ordered slide shows {}, change = {}", event.slideShowIds(), event.change());
+    }
+
+    @EventListener
+    public void onCachesReset(CachesResetEvent event) {
+        cache.clear();
+    }
+
+    // In MEMORY playback mode the current image is overlaid by the engine, so switching it doesn't stale the entry
+    private long version(Integer slideShowId) {
+        return playbackEngine.isEnabled()
+            ? slideShowVersions.membershipVersion(slideShowId)
+            : slideShowVersions.version(slideShowId);
+    }
+
+    private record Entry(long version, List<OrderedImageDetailsResponse> images) {}
+}
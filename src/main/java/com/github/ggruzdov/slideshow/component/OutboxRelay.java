@@ -0,0 +1,130 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.ggruzdov.slideshow.config.OutboxProperties;
+import com.github.ggruzdov.slideshow.model.OutboxEvent;
+import com.github.ggruzdov.slideshow.repository.OutboxJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves outbox events to the sink. Every worker repeatedly locks a batch of the oldest rows skipping the ones
+ * locked by other workers(on any instance), publishes it and deletes the rows in the same transaction,
+ * so throughput scales with the number of workers and no event is taken by two workers.
+ * If the transaction fails after the batch is published, the batch is published again(at least once delivery).
+ * Workers take batches independently, so events are published roughly but not strictly in id order.
+ * Metrics: slideshow.outbox.relayed and slideshow.outbox.failures counters.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private final OutboxProperties properties;
+    private final OutboxJdbcRepository outboxJdbcRepository;
+    private final OutboxSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter relayed;
+    private final Counter failures;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public OutboxRelay(
+        OutboxProperties properties,
+        OutboxJdbcRepository outboxJdbcRepository,
+        OutboxSink sink,
+        TransactionTemplate transactionTemplate,
+        MeterRegistry meterRegistry
+    ) {
+        this.properties = properties;
+        this.outboxJdbcRepository = outboxJdbcRepository;
+        this.sink = sink;
+        this.transactionTemplate = transactionTemplate;
+        this.relayed = meterRegistry.counter("slideshow.outbox.relayed");
+        this.failures = meterRegistry.counter("slideshow.outbox.failures");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        running = true;
+        var factory = Thread.ofVirtual().name("outbox-relay-", 0).factory();
+        for (int i = 0; i < properties.workers(); i++) {
+            var worker = factory.newThread(this::relayLoop);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("Outbox relay started, workers = {}, batchSize = {}", properties.workers(), properties.batchSize());
+    }
+
+    // Workers are not interrupted, an interrupted virtual thread would close the socket of its pooled connection.
+    // The current batches are completed, so the rows are either deleted or released.
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (var worker : workers) {
+            worker.join(properties.pollInterval().multipliedBy(10));
+        }
+    }
+
+    private void relayLoop() {
+        while (running) {
+            int size;
+            try {
+                size = relayBatch();
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                failures.increment();
+                log.error("Failed to relay outbox events, retrying in {}", properties.pollInterval(), e);
+                size = 0;
+            }
+
+            // A full batch means there are probably more rows waiting
+            if (size < properties.batchSize()) {
+                try {
+                    Thread.sleep(properties.pollInterval());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private int relayBatch() {
+        var size = transactionTemplate.execute(tx -> {
+            var events = outboxJdbcRepository.lockBatch(properties.batchSize());
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            try {
+                sink.publish(events);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            outboxJdbcRepository.deleteAll(events.stream().map(OutboxEvent::id).toList());
+            return events.size();
+        });
+
+        if (size != null && size > 0) {
+            relayed.increment(size);
+            log.debug("Relayed outbox events, size = {}", size);
+        }
+        return size == null ? 0 : size;
+    }
+}
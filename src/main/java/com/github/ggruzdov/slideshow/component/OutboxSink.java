@@ -0,0 +1,20 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.ggruzdov.slideshow.model.OutboxEvent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of relayed outbox events, selected by slideshow.outbox.sink.
+ */
+public interface OutboxSink {
+
+    /**
+     * Called by several relay workers concurrently. The events must be durably published when the method returns,
+     * since they are deleted from the outbox right after that.
+     *
+     * @param events ordered by id
+     */
+    void publish(List<OutboxEvent> events) throws IOException;
+}
@@ -0,0 +1,67 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.slideshow.config.OutboxProperties;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent.Change;
+import com.github.ggruzdov.slideshow.model.OutboxEvent;
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
+import com.github.ggruzdov.slideshow.repository.OutboxJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Writes outbox events within the transactions of the changes they describe, so an event is relayed
+ * if and only if its change is committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private final OutboxProperties properties;
+    private final OutboxJdbcRepository outboxJdbcRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Must be called within the transaction saving the proofs of play.
+     */
+    public void proofsOfPlay(List<ProofOfPlayEvent> events) {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        outboxJdbcRepository.insertAll(OutboxEvent.Type.PROOF_OF_PLAY, events.stream().map(this::json).toList());
+    }
+
+    // Still within the transaction of the change, a failed insert rolls the change back.
+    // Events published outside of transactions are ignored: all the local changes are transactional,
+    // while changes of other instances republished by ChangeNotifier are already in the outbox of their instance.
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onSlideShowChanged(SlideShowChangedEvent event) {
+        if (!properties.enabled() || event.change() == Change.CURRENT_IMAGE) {
+            return;
+        }
+
+        var payloads = event.slideShowIds()
+            .stream()
+            .map(id -> json(new SlideShowChange(id, event.change())))
+            .toList();
+        outboxJdbcRepository.insertAll(OutboxEvent.Type.SLIDESHOW_CHANGED, payloads);
+    }
+
+    private String json(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record SlideShowChange(Integer slideShowId, Change change) {
+    }
+}
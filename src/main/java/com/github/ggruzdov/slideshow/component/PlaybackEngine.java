@@ -0,0 +1,366 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.ggruzdov.slideshow.config.PlaybackProperties;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory playback state of slide shows(MEMORY playback mode).
+ * Each loaded slide show is kept as an ordered ring of image ids with a cursor pointing to the current image,
+ * so switching to the next image is a constant time operation without database round trips.
+ * Slide shows are loaded lazily on the first play and guarded by striped locks, i.e. different slide shows
+ * are played in parallel while events of the same slide show are serialized.
+ * The cursor is persisted into slide_shows_images.is_current by periodic checkpoints,
+ * and within any membership change of a slide show(see detach).
+ */
+@Slf4j
+@Component
+public class PlaybackEngine {
+
+    private static final String LOAD_SQL = "select image_id, is_current from slide_shows_images where slide_show_id = ? order by position";
+
+    // The second condition also covers the case when the previously persisted image is unknown
+    private static final String CHECKPOINT_SQL = "update slide_shows_images set is_current = (image_id = ?) where slide_show_id = ? and (is_current or image_id = ?)";
+
+    private static final int UNKNOWN = -1;
+
+    private final PlaybackProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Integer, Playback> playbacks = new ConcurrentHashMap<>();
+    private final Set<Integer> dirtySlideShowIds = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock[] stripes;
+
+    // Serializes checkpoints and detaches, so a checkpoint never overwrites a cursor persisted by detach
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    public PlaybackEngine(PlaybackProperties properties, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        if (Integer.bitCount(properties.lockStripes()) != 1) {
+            throw new IllegalArgumentException("Playback lock stripes must be a power of two, got " + properties.lockStripes());
+        }
+
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.stripes = new ReentrantLock[properties.lockStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.mode() == PlaybackProperties.Mode.MEMORY;
+    }
+
+    /**
+     * Moves the cursor to the image next to the played one.
+     *
+     * @return false if the image doesn't belong to the slide show
+     * @throws EntityNotFoundException if the slide show doesn't exist
+     */
+    public boolean advance(Integer slideShowId, Integer imageId) {
+        var lock = stripe(slideShowId);
+        lock.lock();
+        try {
+            var playback = getOrLoad(slideShowId);
+            if (playback == null) {
+                throw new EntityNotFoundException("Slide show with id " + slideShowId + " not found");
+            }
+
+            var playedIdx = playback.indexOf(imageId);
+            if (playedIdx < 0) {
+                log.warn("ImageId = {} doesn't belong to SlideShow with id {}", imageId, slideShowId);
+                return false;
+            }
+
+            if (playedIdx != playback.cursor) {
+                log.warn(
+                    "Active image mismatch detected, activeImage id = {}, played imageId = {}",
+                    playback.imageIds[playback.cursor], imageId
+                );
+            }
+
+            playback.cursor = (playedIdx + 1) % playback.imageIds.length;
+            playback.lastAccess = System.nanoTime();
+            if (playback.currentImageId() != playback.persistedImageId) {
+                dirtySlideShowIds.add(slideShowId);
+            }
+            log.debug("SlideShow {} next imageId is: {}", slideShowId, playback.currentImageId());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the slide show if necessary.
+     *
+     * @return current image id or null if the engine is disabled or the slide show doesn't exist
+     */
+    public Integer currentImageId(Integer slideShowId) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        var lock = stripe(slideShowId);
+        lock.lock();
+        try {
+            var playback = getOrLoad(slideShowId);
+            return playback == null ? null : playback.currentImageId();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Unloads a slide show before its membership is changed. The cursor is persisted within the caller's
+     * transaction, so the caller sees the actual current image. Till the transaction completes the slide show
+     * stays loaded but pinned, i.e. skipped by checkpoints, then it is unloaded if the transaction is committed,
+     * or unpinned and checkpointed again if it is rolled back, since the persisted cursor is rolled back too.
+     */
+    public void detach(Integer slideShowId) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        var inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        Playback playback;
+        var lock = stripe(slideShowId);
+        lock.lock();
+        try {
+            playback = inTransaction ? playbacks.get(slideShowId) : playbacks.remove(slideShowId);
+            dirtySlideShowIds.remove(slideShowId);
+            if (playback != null) {
+                playback.pinned = inTransaction;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (playback != null) {
+            checkpointLock.lock();
+            try {
+                jdbcTemplate.update(CHECKPOINT_SQL, playback.currentImageId(), slideShowId, playback.currentImageId());
+            } finally {
+                checkpointLock.unlock();
+            }
+        }
+
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        evict(slideShowId);
+                    } else {
+                        unpin(slideShowId);
+                    }
+                }
+            });
+        }
+    }
+
+    // Unloads a slide show without persisting its cursor, e.g. when it is deleted
+    public void evict(Integer slideShowId) {
+        var lock = stripe(slideShowId);
+        lock.lock();
+        try {
+            playbacks.remove(slideShowId);
+            dirtySlideShowIds.remove(slideShowId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${slideshow.playback.checkpoint-interval:1s}")
+    public void checkpoint() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        checkpointLock.lock();
+        try {
+            persistDirty();
+            unloadIdle();
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        checkpoint();
+    }
+
+    private void persistDirty() {
+        if (dirtySlideShowIds.isEmpty()) {
+            return;
+        }
+
+        var snapshot = new ArrayList<int[]>(dirtySlideShowIds.size());
+        for (var slideShowId : dirtySlideShowIds) {
+            var lock = stripe(slideShowId);
+            lock.lock();
+            try {
+                dirtySlideShowIds.remove(slideShowId);
+                var playback = playbacks.get(slideShowId);
+                // A pinned cursor is persisted by detach, its rows may be locked by the detaching transaction
+                if (playback != null && !playback.pinned && playback.currentImageId() != playback.persistedImageId) {
+                    playback.persistedImageId = playback.currentImageId();
+                    snapshot.add(new int[]{slideShowId, playback.persistedImageId});
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(tx ->
+                jdbcTemplate.batchUpdate(CHECKPOINT_SQL, snapshot, snapshot.size(), (ps, it) -> {
+                    ps.setInt(1, it[1]);
+                    ps.setInt(2, it[0]);
+                    ps.setInt(3, it[1]);
+                })
+            );
+            log.debug("Playback checkpoint, persisted slide shows = {}", snapshot.size());
+        } catch (Exception e) {
+            log.error("Playback checkpoint failed, slide shows = {}", snapshot.size(), e);
+            snapshot.forEach(it -> markUnpersisted(it[0]));
+        }
+    }
+
+    private void unpin(Integer slideShowId) {
+        var lock = stripe(slideShowId);
+        lock.lock();
+        try {
+            var playback = playbacks.get(slideShowId);
+            if (playback != null && playback.pinned) {
+                playback.pinned = false;
+                playback.persistedImageId = UNKNOWN;
+                dirtySlideShowIds.add(slideShowId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void markUnpersisted(Integer slideShowId) {
+        var lock = stripe(slideShowId);
+        lock.lock();
+        try {
+            var playback = playbacks.get(slideShowId);
+            if (playback != null) {
+                playback.persistedImageId = UNKNOWN;
+                dirtySlideShowIds.add(slideShowId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unloadIdle() {
+        var idleSince = System.nanoTime() - properties.idleTimeout().toNanos();
+        for (var slideShowId : List.copyOf(playbacks.keySet())) {
+            var lock = stripe(slideShowId);
+            lock.lock();
+            try {
+                var playback = playbacks.get(slideShowId);
+                if (playback != null && !playback.pinned && playback.lastAccess - idleSince < 0 && !dirtySlideShowIds.contains(slideShowId)) {
+                    playbacks.remove(slideShowId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Must be called under the slide show stripe lock
+    private Playback getOrLoad(Integer slideShowId) {
+        var playback = playbacks.get(slideShowId);
+        if (playback == null) {
+            playback = load(slideShowId);
+            if (playback != null) {
+                playbacks.put(slideShowId, playback);
+            }
+        }
+
+        return playback;
+    }
+
+    private Playback load(Integer slideShowId) {
+        var imageIds = new ArrayList<Integer>();
+        var current = new int[]{UNKNOWN};
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            if (rs.getBoolean("is_current")) {
+                current[0] = imageIds.size();
+            }
+            imageIds.add(rs.getInt("image_id"));
+        }, slideShowId);
+
+        if (imageIds.isEmpty()) {
+            return null;
+        }
+
+        var ring = imageIds.stream().mapToInt(Integer::intValue).toArray();
+        var playback = current[0] == UNKNOWN
+            ? new Playback(ring, 0, UNKNOWN)
+            : new Playback(ring, current[0], ring[current[0]]);
+        log.debug("SlideShow {} loaded for playback, images = {}", slideShowId, imageIds.size());
+        return playback;
+    }
+
+    private ReentrantLock stripe(Integer slideShowId) {
+        var hash = slideShowId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    // Mutable state, always accessed under the slide show stripe lock
+    private static final class Playback {
+
+        private final int[] imageIds;
+        private int cursor;
+        private int persistedImageId;
+        private long lastAccess;
+        private boolean pinned;
+
+        private Playback(int[] imageIds, int cursor, int persistedImageId) {
+            this.imageIds = imageIds;
+            this.cursor = cursor;
+            this.persistedImageId = persistedImageId;
+            this.lastAccess = System.nanoTime();
+        }
+
+        private int currentImageId() {
+            return imageIds[cursor];
+        }
+
+        // Normally the played image is the current one, so a full scan is an exception
+        private int indexOf(int imageId) {
+            if (imageIds[cursor] == imageId) {
+                return cursor;
+            }
+
+            for (int i = 0; i < imageIds.length; i++) {
+                if (imageIds[i] == imageId) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.ggruzdov.slideshow.config.ProofOfPlayProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Maintains daily(UTC) partitions of proofs_of_play: creates partitions for the upcoming days
+ * and drops the ones which are entirely older than the retention period, dropping a partition
+ * is instant unlike DELETE which leaves bloat behind.
+ * Runs on startup and then daily, an advisory lock keeps concurrent instances from doing the same work.
+ * Rows that fell into the default partition meanwhile are moved into the partition created for their day.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProofOfPlayPartitionManager {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // Arbitrary application wide key of the advisory lock
+    private static final long LOCK_KEY = 0x5D0F_9A11L;
+
+    // Upper bounds of the existing range partitions, the default partition doesn't have any
+    private static final String PARTITIONS_SQL = """
+        select name, upper_bound from (
+            select c.relname as name,
+                   (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''(.+)''\\)'))[1]::timestamptz as upper_bound
+            from pg_inherits i
+            join pg_class c on c.oid = i.inhrelid
+            where i.inhparent = 'proofs_of_play'::regclass
+        ) p
+        where upper_bound is not null
+        """;
+
+    // Rows written into the default partition when a partition wasn't created in time are moved into the new one,
+    // all within the maintenance transaction
+    private static final String MOVE_OUT_OF_DEFAULT_SQL = """
+        create temp table proofs_of_play_misplaced on commit drop as
+        with moved as (delete from proofs_of_play_default where %s returning *)
+        select * from moved
+        """;
+
+    private final ProofOfPlayProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${slideshow.proof-of-play.partition-maintenance-cron:0 0 1 * * *}", zone = "UTC")
+    public void maintain() {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY))) {
+                    createUpcoming();
+                    dropExpired();
+                } else {
+                    log.info("Proofs of play partitions are maintained by another instance");
+                }
+            });
+        } catch (Exception e) {
+            log.error("Proofs of play partitions maintenance failed", e);
+        }
+    }
+
+    private void createUpcoming() {
+        var partitions = partitions();
+        // The first day not covered by existing partitions, e.g. by the history partition
+        var from = partitions.stream()
+            .map(Partition::upperBound)
+            .max(Instant::compareTo)
+            .map(it -> LocalDate.ofInstant(it, ZoneOffset.UTC))
+            .orElse(LocalDate.now(ZoneOffset.UTC));
+
+        var until = LocalDate.now(ZoneOffset.UTC).plusDays(properties.partitionsAhead());
+        for (var day = from; !day.isAfter(until); day = day.plusDays(1)) {
+            var name = "proofs_of_play_" + PARTITION_SUFFIX.format(day);
+            var range = "created_at >= '%s 00:00:00+00' and created_at < '%s 00:00:00+00'".formatted(day, day.plusDays(1));
+            // A partition can't be created while the default partition holds rows of its range
+            var misplaced = jdbcTemplate.queryForObject("select count(*) from proofs_of_play_default where " + range, Long.class);
+            if (misplaced > 0) {
+                jdbcTemplate.execute(MOVE_OUT_OF_DEFAULT_SQL.formatted(range));
+            }
+
+            jdbcTemplate.execute(
+                "create table %s partition of proofs_of_play for values from ('%s 00:00:00+00') to ('%s 00:00:00+00')"
+                    .formatted(name, day, day.plusDays(1))
+            );
+            if (misplaced > 0) {
+                jdbcTemplate.execute("insert into %s select * from proofs_of_play_misplaced".formatted(name));
+                jdbcTemplate.execute("drop table proofs_of_play_misplaced");
+                log.warn("Proofs of play moved from the default partition into {}, rows = {}", name, misplaced);
+            }
+            log.info("Proofs of play partition created: {}", name);
+        }
+    }
+
+    private void dropExpired() {
+        var threshold = Instant.now().minus(properties.retention());
+        for (var partition : partitions()) {
+            if (!partition.upperBound().isAfter(threshold)) {
+                jdbcTemplate.execute("drop table " + partition.name());
+                log.info("Proofs of play partition dropped: {}, upper bound = {}", partition.name(), partition.upperBound());
+            }
+        }
+    }
+
+    private List<Partition> partitions() {
+        return jdbcTemplate.query(
+            PARTITIONS_SQL,
+            (rs, rowNum) -> new Partition(rs.getString("name"), rs.getTimestamp("upper_bound").toInstant())
+        );
+    }
+
+    private record Partition(String name, Instant upperBound) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.ggruzdov.slideshow.config.ConcurrencyProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs slide show mutations in transactions retried on optimistic locking conflicts.
+ * A conflict means that another transaction has changed the same rows since they were read,
+ * so the whole transaction is started over and sees the committed changes.
+ * Conflicts are counted as slideshow.concurrency.conflicts{operation, outcome}, where outcome is retried or failed.
+ * Within an outer transaction nothing is retried, since the rolled back work of the caller can't be repeated here.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SlideShowMutations {
+
+    private final ConcurrencyProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public boolean isOptimistic() {
+        return properties.mode() == ConcurrencyProperties.Mode.OPTIMISTIC;
+    }
+
+    public void execute(String operation, Runnable mutation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            mutation.run();
+            return;
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(tx -> mutation.run());
+                return;
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= properties.maxAttempts()) {
+                    meterRegistry.counter("slideshow.concurrency.conflicts", "operation", operation, "outcome", "failed").increment();
+                    log.warn("{} failed after {} attempts due to concurrent modifications", operation, attempt);
+                    throw e;
+                }
+
+                meterRegistry.counter("slideshow.concurrency.conflicts", "operation", operation, "outcome", "retried").increment();
+                log.debug("{} conflicted with a concurrent modification, attempt = {}: {}", operation, attempt, e.getMessage());
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    private void backOff(int attempt, RuntimeException conflict) {
+        var maxDelay = properties.backoff().toNanos() * attempt;
+        if (maxDelay <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(maxDelay)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.slideshow.config.SseProperties;
+import com.github.ggruzdov.slideshow.event.CachesResetEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent.Change;
+import com.github.ggruzdov.slideshow.repository.SlideShowImageRepository;
+import com.github.ggruzdov.slideshow.repository.SlideShowRepository;
+import com.github.ggruzdov.slideshow.response.SlideShowUpdateResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes committed slide show changes to SSE subscribers(players).
+ * An idle subscriber is just an async servlet request, no thread is parked for it. Threads are virtual
+ * and live only while there is something to do:
+ * <ul>
+ * <li>a publisher per slide show reads the current state and serializes the event once for all the subscribers,
+ * changes arriving meanwhile are coalesced into the next event, so subscribers always end up with the latest state;</li>
+ * <li>a sender per subscriber drains its bounded buffer, the writes are blocking.</li>
+ * </ul>
+ * A subscriber whose buffer is full(slow consumer) is disconnected, after reconnecting it gets the actual state anyway.
+ * Metrics: slideshow.sse.subscribers gauge and slideshow.sse.dropped counter.
+ */
+@Slf4j
+@Component
+public class SlideShowUpdatesBroadcaster {
+
+    private final SseProperties properties;
+    private final PlaybackEngine playbackEngine;
+    private final SlideShowRepository slideShowRepository;
+    private final SlideShowImageRepository slideShowImageRepository;
+    private final ObjectMapper objectMapper;
+    private final Map<Integer, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong eventIds = new AtomicLong();
+    private final Counter dropped;
+    private final ThreadFactory publishers = Thread.ofVirtual().name("sse-publisher-", 0).factory();
+    private final ThreadFactory senders = Thread.ofVirtual().name("sse-sender-", 0).factory();
+
+    public SlideShowUpdatesBroadcaster(
+        SseProperties properties,
+        PlaybackEngine playbackEngine,
+        SlideShowRepository slideShowRepository,
+        SlideShowImageRepository slideShowImageRepository,
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry
+    ) {
+        this.properties = properties;
+        this.playbackEngine = playbackEngine;
+        this.slideShowRepository = slideShowRepository;
+        this.slideShowImageRepository = slideShowImageRepository;
+        this.objectMapper = objectMapper;
+        this.dropped = meterRegistry.counter("slideshow.sse.dropped");
+        meterRegistry.gauge("slideshow.sse.subscribers", subscribers);
+    }
+
+    /**
+     * The first event is the current state of the slide show.
+     *
+     * @throws EntityNotFoundException if the slide show doesn't exist
+     */
+    public SseEmitter subscribe(Integer slideShowId) {
+        if (!slideShowRepository.existsById(slideShowId)) {
+            throw new EntityNotFoundException("Slide show with id " + slideShowId + " not found");
+        }
+
+        var subscriber = new Subscriber(slideShowId, new SseEmitter(properties.timeout().toMillis()));
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+
+        var topic = topics.compute(slideShowId, (id, it) -> {
+            it = it == null ? new Topic(slideShowId) : it;
+            it.subscribers.add(subscriber);
+            it.joining.add(subscriber);
+            return it;
+        });
+        subscribers.incrementAndGet();
+        log.debug("SSE subscriber added, slideShowId = {}, subscribers = {}", slideShowId, subscribers.get());
+
+        // The state is sent by the topic publisher, so it can't overtake a later change
+        topic.wakeUp();
+        return subscriber.emitter;
+    }
+
+    // Slide shows without subscribers cost a map lookup only
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlideShowChanged(SlideShowChangedEvent event) {
+        for (var slideShowId : event.slideShowIds()) {
+            var topic = topics.get(slideShowId);
+            if (topic != null) {
+                topic.schedule(event.change());
+            }
+        }
+    }
+
+    // Subscribers might have missed changes, they get the actual state
+    @EventListener
+    public void onCachesReset(CachesResetEvent event) {
+        topics.values().forEach(topic -> topic.schedule(Change.MEMBERSHIP));
+    }
+
+    @Scheduled(fixedDelayString = "${slideshow.sse.heartbeat-interval:30s}")
+    public void heartbeat() {
+        if (topics.isEmpty()) {
+            return;
+        }
+
+        var comment = SseEmitter.event().comment("heartbeat").build();
+        topics.values().forEach(topic -> topic.subscribers.forEach(it -> it.offer(comment)));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        topics.computeIfPresent(subscriber.slideShowId, (id, topic) -> {
+            topic.subscribers.remove(subscriber);
+            return topic.subscribers.isEmpty() ? null : topic;
+        });
+        subscribers.decrementAndGet();
+    }
+
+    private SlideShowUpdateResponse update(Integer slideShowId, Change change) {
+        var currentImageId = change == Change.DELETED ? null : currentImageId(slideShowId);
+        return new SlideShowUpdateResponse(slideShowId, currentImageId == null ? Change.DELETED : change, currentImageId);
+    }
+
+    private Set<DataWithMediaType> event(SlideShowUpdateResponse update) {
+        try {
+            return SseEmitter.event()
+                .id(Long.toString(eventIds.incrementAndGet()))
+                .data(objectMapper.writeValueAsString(update), MediaType.APPLICATION_JSON)
+                .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Integer currentImageId(Integer slideShowId) {
+        if (playbackEngine.isEnabled()) {
+            return playbackEngine.currentImageId(slideShowId);
+        }
+
+        var current = slideShowImageRepository.findByPkSlideShowIdAndIsCurrentTrue(slideShowId);
+        return current == null ? null : current.getImageId();
+    }
+
+    private final class Topic {
+
+        private final Integer slideShowId;
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        // New subscribers waiting for the current state
+        private final Queue<Subscriber> joining = new ConcurrentLinkedQueue<>();
+        private final AtomicReference<Change> pending = new AtomicReference<>();
+        private final AtomicBoolean publishing = new AtomicBoolean();
+
+        private Topic(Integer slideShowId) {
+            this.slideShowId = slideShowId;
+        }
+
+        private void schedule(Change change) {
+            pending.accumulateAndGet(change, Change::merge);
+            wakeUp();
+        }
+
+        private void wakeUp() {
+            if (publishing.compareAndSet(false, true)) {
+                publishers.newThread(this::publish).start();
+            }
+        }
+
+        private void publish() {
+            while (true) {
+                var change = pending.getAndSet(null);
+                var joined = new ArrayList<Subscriber>();
+                for (Subscriber it; (it = joining.poll()) != null; ) {
+                    joined.add(it);
+                }
+
+                if (change == null && joined.isEmpty()) {
+                    publishing.set(false);
+                    // Something might be scheduled right before the flag was reset
+                    if ((pending.get() == null && joining.isEmpty()) || !publishing.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                try {
+                    // A change goes to everybody including the new subscribers, otherwise only they get the state
+                    var update = update(slideShowId, change == null ? Change.CURRENT_IMAGE : change);
+                    var event = event(update);
+                    var recipients = change == null ? joined : subscribers;
+                    recipients.forEach(it -> it.offer(event));
+                    if (update.change() == Change.DELETED) {
+                        recipients.forEach(Subscriber::completeWhenSent);
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to publish SSE event, slideShowId = {}, change = {}", slideShowId, change, e);
+                }
+            }
+        }
+    }
+
+    private final class Subscriber {
+
+        private final Integer slideShowId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> buffer = new ArrayBlockingQueue<>(properties.bufferSize());
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean completing;
+
+        private Subscriber(Integer slideShowId, SseEmitter emitter) {
+            this.slideShowId = slideShowId;
+            this.emitter = emitter;
+        }
+
+        private void offer(Set<DataWithMediaType> event) {
+            if (closed.get()) {
+                return;
+            }
+
+            if (!buffer.offer(event)) {
+                log.info("SSE subscriber is too slow and is disconnected, slideShowId = {}", slideShowId);
+                dropped.increment();
+                unsubscribe(this);
+                emitter.complete();
+                return;
+            }
+
+            wakeUp();
+        }
+
+        // E.g. the slide show is deleted, there will be no more events
+        private void completeWhenSent() {
+            completing = true;
+            wakeUp();
+        }
+
+        private void wakeUp() {
+            if (sending.compareAndSet(false, true)) {
+                senders.newThread(this::send).start();
+            }
+        }
+
+        private void send() {
+            while (true) {
+                Set<DataWithMediaType> event;
+                while ((event = buffer.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        // The client is gone or the emitter is already completed
+                        log.debug("SSE send failed, slideShowId = {}: {}", slideShowId, e.getMessage());
+                        unsubscribe(this);
+                        buffer.clear();
+                        return;
+                    }
+                }
+
+                if (completing) {
+                    unsubscribe(this);
+                    emitter.complete();
+                    return;
+                }
+
+                sending.set(false);
+                if ((buffer.isEmpty() && !completing) || !sending.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+}
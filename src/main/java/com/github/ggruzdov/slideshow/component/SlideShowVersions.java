@@ -0,0 +1,76 @@
+package com.github.ggruzdov.slideshow.component;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.ggruzdov.slideshow.event.CachesResetEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per slide show versions used as ETags of ordered slide shows and as stamps of cached ordered slide shows.
+ * A version is bumped after every committed change of the slide show including the current image switch,
+ * the membership version is not bumped by the current image switch. Versions are taken from a single sequence
+ * so a version is never reused. They live in memory, so tokens contain a random instance epoch which makes
+ * tokens issued before a restart or by another instance never match.
+ * Deleted slide shows keep a tombstone version(ids are never reused), so other slide shows aren't affected.
+ * At most MAX_TRACKED versions are kept, a slide show evicted under the capacity pressure raises the floor
+ * to its version and then gets the floor, so its version never goes back.
+ */
+@Component
+public class SlideShowVersions {
+
+    public static final int MAX_TRACKED = 100_000;
+
+    private volatile String epoch = newEpoch();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong floor = new AtomicLong();
+    // The eviction listener runs atomically with the eviction, so the floor is raised before the version is gone
+    private final Map<Integer, Versions> versions = Caffeine.newBuilder()
+        .maximumSize(MAX_TRACKED)
+        .executor(Runnable::run)
+        .<Integer, Versions>evictionListener((id, evicted, cause) -> floor.accumulateAndGet(evicted.all(), Math::max))
+        .build()
+        .asMap();
+
+    public String eTag(Integer slideShowId) {
+        return "\"%s-%d-%d\"".formatted(epoch, slideShowId, version(slideShowId));
+    }
+
+    public long version(Integer slideShowId) {
+        var it = versions.get(slideShowId);
+        return Math.max(floor.get(), it == null ? 0 : it.all());
+    }
+
+    public long membershipVersion(Integer slideShowId) {
+        var it = versions.get(slideShowId);
+        return Math.max(floor.get(), it == null ? 0 : it.membership());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlideShowChanged(SlideShowChangedEvent event) {
+        var membershipChanged = event.change() != SlideShowChangedEvent.Change.CURRENT_IMAGE;
+        event.slideShowIds().forEach(id -> versions.compute(id, (key, previous) -> {
+            var next = sequence.incrementAndGet();
+            return new Versions(next, membershipChanged || previous == null ? next : previous.membership());
+        }));
+    }
+
+    // Changes might have been missed, so all the issued tokens are invalidated and tracked versions aren't needed anymore
+    @EventListener
+    public void onCachesReset(CachesResetEvent event) {
+        epoch = newEpoch();
+        floor.accumulateAndGet(sequence.get(), Math::max);
+        versions.clear();
+    }
+
+    private static String newEpoch() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    private record Versions(long all, long membership) {}
+}
@@ -0,0 +1,26 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Proof of play rollups settings.
+ * Fine-grained rollups are needed for recent periods only, so they are kept for a limited time,
+ * day rollups are kept forever.
+ */
+@ConfigurationProperties(prefix = "slideshow.analytics")
+public record AnalyticsProperties(
+
+    @DefaultValue("7d")
+    Duration minuteRetention,
+
+    @DefaultValue("400d")
+    Duration hourRetention,
+
+    // Expired rollups deleted per transaction
+    @DefaultValue("10000")
+    int retentionBatchSize
+) {
+}
@@ -1,8 +1,13 @@
 package com.github.ggruzdov.slideshow.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestClient;
 
 import java.time.Duration;
@@ -10,18 +15,33 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
     @Bean
     public RestClient restClient(RestTemplateBuilder builder) {
-        builder.connectTimeout(Duration.ofSeconds(5));
-        builder.readTimeout(Duration.ofSeconds(30));
+        // The builder is immutable, every call returns a new one
+        var restTemplate = builder
+            .connectTimeout(Duration.ofSeconds(5))
+            .readTimeout(Duration.ofSeconds(30))
+            .build();
 
-        return RestClient.builder(builder.build()).build();
+        return RestClient.builder(restTemplate).build();
     }
 
+    // Image validation executor. Validations block on I/O, so with virtual threads every URL gets its own thread
+    // and the concurrency is bounded by HostConcurrencyLimiter only.
+    // A thread per task executor has no pool or queue to monitor and validations are already timed as image.validation,
+    // so only the fixed pool is monitored as executor{name="image-validation"}.
     @Bean
-    public ExecutorService executorService() {
-        return Executors.newFixedThreadPool(10);
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualThreadsExecutorService() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("image-validation-", 0).factory());
+    }
+
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService executorService(ImageValidationProperties properties, MeterRegistry meterRegistry) {
+        return ExecutorServiceMetrics.monitor(meterRegistry, Executors.newFixedThreadPool(properties.poolSize()), "image-validation");
     }
 }
@@ -0,0 +1,15 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches are Caffeine based and configured by spring.cache properties,
+ * cache names must be listed in spring.cache.cache-names so their metrics are registered on startup.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ORDERED_SLIDESHOWS = "ordered-slideshows";
+}
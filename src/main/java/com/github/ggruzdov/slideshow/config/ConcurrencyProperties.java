@@ -0,0 +1,36 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Concurrency control of slide show mutations(proofs of play and image removals).
+ * In PESSIMISTIC mode the mutated rows are locked(SELECT ... FOR UPDATE) before they are read,
+ * so events of the same slide show wait for each other holding their connections.
+ * In OPTIMISTIC mode rows are read without locks and the updates are checked by @Version columns,
+ * a conflicting transaction is rolled back and retried by SlideShowMutations.
+ * Appends lock the slide show in both modes, since the next position must be allocated serially,
+ * image deletions are set-based updates which lock the affected slide shows in both modes as well.
+ */
+@ConfigurationProperties(prefix = "slideshow.concurrency")
+public record ConcurrencyProperties(
+
+    @DefaultValue("PESSIMISTIC")
+    Mode mode,
+
+    // Including the first one, the last conflict is reported to the client as 409
+    @DefaultValue("5")
+    int maxAttempts,
+
+    // Base delay before a retry, it grows with the attempt number and is randomized(full jitter)
+    @DefaultValue("10ms")
+    Duration backoff
+) {
+
+    public enum Mode {
+        PESSIMISTIC,
+        OPTIMISTIC
+    }
+}
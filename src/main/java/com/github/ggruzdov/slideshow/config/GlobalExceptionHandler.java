@@ -1,12 +1,16 @@
 package com.github.ggruzdov.slideshow.config;
 
+import com.github.ggruzdov.slideshow.exceptions.IngestionOverloadedException;
 import com.github.ggruzdov.slideshow.exceptions.InvalidImageException;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -89,6 +93,57 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(IngestionOverloadedException.class)
+    @ApiResponse(
+        responseCode = "503",
+        description = "Proof of play buffer is full",
+        content = @Content(
+            mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = ErrorResponse.class),
+            examples = @ExampleObject(
+                value = """
+                    {
+                        "error": "Service overloaded",
+                        "message": "Proof of play buffer is full, try again later"
+                    }
+                    """
+            )
+        )
+    )
+    public ResponseEntity<ErrorResponse> handleIngestionOverloadedException(IngestionOverloadedException ex) {
+        log.warn(ex.getMessage());
+        var errorResponse = new ErrorResponse("Service overloaded", ex.getLocalizedMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(errorResponse);
+    }
+
+    // Optimistic locking conflicts which were still there after all the retries, see SlideShowMutations
+    @ExceptionHandler({OptimisticLockingFailureException.class, OptimisticLockException.class})
+    @ApiResponse(
+        responseCode = "409",
+        description = "Concurrent modification",
+        content = @Content(
+            mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = ErrorResponse.class),
+            examples = @ExampleObject(
+                value = """
+                    {
+                        "error": "Concurrent modification",
+                        "message": "Slide show was modified concurrently, try again later"
+                    }
+                    """
+            )
+        )
+    )
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(Exception ex) {
+        log.warn(ex.getMessage());
+        var errorResponse = new ErrorResponse("Concurrent modification", "Slide show was modified concurrently, try again later");
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(errorResponse);
+    }
+
     @ExceptionHandler(Exception.class)
     @ApiResponse(
         responseCode = "500",
@@ -0,0 +1,24 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Bulk image import settings.
+ * Input lines are processed by chunks: the chunk images are validated in parallel and inserted
+ * in one transaction, so memory use depends on the chunk size only.
+ */
+@ConfigurationProperties(prefix = "slideshow.image-import")
+public record ImageImportProperties(
+
+    // Also bounds the number of parallel validations
+    @DefaultValue("500")
+    int chunkSize,
+
+    // Max time to validate the images of a chunk, not validated ones are reported as failed
+    @DefaultValue("60s")
+    Duration chunkValidationTimeout
+) {
+}
@@ -0,0 +1,68 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Image URL validation settings.
+ * In RANGE mode the first bytes of an image are downloaded and checked against the supported formats signatures,
+ * HEAD mode is cheaper but relies on the response headers only.
+ * Validation results are cached by normalized URL: valid URLs for positiveTtl and invalid ones(e.g. 404)
+ * for negativeTtl, transient failures like timeouts or 5xx responses are not cached at all.
+ */
+@ConfigurationProperties(prefix = "slideshow.image-validation")
+public record ImageValidationProperties(
+
+    @DefaultValue("RANGE")
+    Mode mode,
+
+    @DefaultValue("true")
+    boolean cacheEnabled,
+
+    @DefaultValue("1h")
+    Duration positiveTtl,
+
+    // Short, so that an image uploaded right after a failed attempt becomes valid soon
+    @DefaultValue("1m")
+    Duration negativeTtl,
+
+    // Least frequently used entries are evicted first(Caffeine W-TinyLFU)
+    @DefaultValue("10000")
+    long cacheMaximumSize,
+
+    // Validation threads, used only when virtual threads are disabled
+    @DefaultValue("10")
+    int poolSize,
+
+    // Images of a slideshow usually come from the same storage, so it should fit most of a slideshow
+    @DefaultValue("50")
+    int maxConcurrencyPerHost,
+
+    // Hosts with their own metric tags, validations of the others are tagged as host="other"
+    @DefaultValue("50")
+    int maxTaggedHosts,
+
+    // How long a validation waits for a free slot of its host, must leave time for the request itself within timeout
+    @DefaultValue("10s")
+    Duration hostPermitTimeout,
+
+    // Max time to validate all the images of a slideshow
+    @DefaultValue("30s")
+    Duration timeout
+) {
+
+    public ImageValidationProperties {
+        if (hostPermitTimeout.compareTo(timeout) >= 0) {
+            throw new IllegalArgumentException(
+                "host-permit-timeout(" + hostPermitTimeout + ") must be less than image validation timeout(" + timeout + ")"
+            );
+        }
+    }
+
+    public enum Mode {
+        RANGE,
+        HEAD
+    }
+}
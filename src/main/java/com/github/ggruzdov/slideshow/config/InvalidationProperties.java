@@ -0,0 +1,35 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Cross-instance invalidation of local state by Postgres LISTEN/NOTIFY, see ChangeNotifier.
+ */
+@ConfigurationProperties(prefix = "slideshow.invalidation")
+public record InvalidationProperties(
+
+    @DefaultValue("true")
+    boolean enabled,
+
+    @DefaultValue("slideshow_changes")
+    String channel,
+
+    // Changes committed meanwhile are coalesced and sent together
+    @DefaultValue("50ms")
+    Duration flushInterval,
+
+    // The listening connection is checked when there were no notifications for this time
+    @DefaultValue("10s")
+    Duration keepaliveInterval,
+
+    // Doubled after every failed attempt up to the max
+    @DefaultValue("1s")
+    Duration reconnectBackoff,
+
+    @DefaultValue("30s")
+    Duration maxReconnectBackoff
+) {
+}
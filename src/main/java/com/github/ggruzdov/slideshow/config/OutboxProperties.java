@@ -0,0 +1,42 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Transactional outbox of proofs of play and slide show changes, see OutboxWriter and OutboxRelay.
+ */
+@ConfigurationProperties(prefix = "slideshow.outbox")
+public record OutboxProperties(
+
+    @DefaultValue("true")
+    boolean enabled,
+
+    // Where relayed events are published, see OutboxSink
+    @DefaultValue("FILE")
+    Sink sink,
+
+    // NDJSON file of the FILE sink, events are appended
+    @DefaultValue("outbox/events.ndjson")
+    Path file,
+
+    // Rows locked, published and deleted by a worker in one transaction
+    @DefaultValue("500")
+    int batchSize,
+
+    // Workers take different rows(FOR UPDATE SKIP LOCKED), so they never publish the same event twice
+    @DefaultValue("2")
+    int workers,
+
+    // How long an idle worker waits before polling again
+    @DefaultValue("200ms")
+    Duration pollInterval
+) {
+
+    public enum Sink {
+        FILE
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Slideshow playback state settings.
+ * In DATABASE mode the current image is switched in the database under the slide show lock,
+ * in MEMORY mode it is switched by PlaybackEngine and persisted on checkpoints.
+ * MEMORY mode assumes that all events of a slide show are handled by the same instance.
+ */
+@ConfigurationProperties(prefix = "slideshow.playback")
+public record PlaybackProperties(
+
+    @DefaultValue("DATABASE")
+    Mode mode,
+
+    @DefaultValue("1s")
+    Duration checkpointInterval,
+
+    // Slide shows which were not played for this time are unloaded from memory
+    @DefaultValue("10m")
+    Duration idleTimeout,
+
+    // Must be a power of two
+    @DefaultValue("64")
+    int lockStripes
+) {
+
+    public enum Mode {
+        DATABASE,
+        MEMORY
+    }
+}
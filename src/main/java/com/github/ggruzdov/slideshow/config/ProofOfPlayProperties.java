@@ -0,0 +1,63 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Proof-of-play ingestion and storage settings.
+ * In SYNC mode every event is processed within its HTTP request, in ASYNC mode events are
+ * acknowledged right after they are put into a bounded in-memory buffer and flushed by batches
+ * with either JDBC batch inserts or binary COPY.
+ * Events are stored in daily partitions, see ProofOfPlayPartitionManager.
+ */
+@ConfigurationProperties(prefix = "slideshow.proof-of-play")
+public record ProofOfPlayProperties(
+
+    @DefaultValue("SYNC")
+    IngestionMode ingestion,
+
+    // Max amount of not flushed events, when it is reached new events are rejected
+    @DefaultValue("10000")
+    int bufferCapacity,
+
+    @DefaultValue("500")
+    int batchSize,
+
+    // Max time an event waits in the buffer for its batch to be filled up
+    @DefaultValue("200ms")
+    Duration flushInterval,
+
+    // How long a request waits for a free slot in the buffer before it is rejected
+    @DefaultValue("100ms")
+    Duration enqueueTimeout,
+
+    @DefaultValue("30s")
+    Duration shutdownTimeout,
+
+    // How batches of buffered events are written, see ProofOfPlayWriter
+    @DefaultValue("BATCH")
+    Writer writer,
+
+    // Daily partitions are created in advance for this number of days
+    @DefaultValue("7")
+    int partitionsAhead,
+
+    // Partitions entirely older than this are dropped
+    @DefaultValue("90d")
+    Duration retention
+) {
+
+    public enum IngestionMode {
+        SYNC,
+        ASYNC
+    }
+
+    public enum Writer {
+        // JDBC batch of inserts
+        BATCH,
+        // Binary COPY FROM STDIN
+        COPY
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.ggruzdov.slideshow.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Server-Sent Events of slide show changes, see SlideShowUpdatesBroadcaster.
+ */
+@ConfigurationProperties(prefix = "slideshow.sse")
+public record SseProperties(
+
+    // Events not yet sent to a subscriber, when they don't fit the subscriber is disconnected
+    @DefaultValue("32")
+    int bufferSize,
+
+    // Connections are closed after this time, clients(EventSource) reconnect automatically
+    @DefaultValue("30m")
+    Duration timeout,
+
+    // Comments sent to idle connections, so proxies don't close them and dead clients are detected
+    @DefaultValue("30s")
+    Duration heartbeatInterval
+) {
+}
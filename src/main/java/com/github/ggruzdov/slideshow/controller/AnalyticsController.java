@@ -0,0 +1,45 @@
+package com.github.ggruzdov.slideshow.controller;
+
+import com.github.ggruzdov.slideshow.request.PlayStatsRequest;
+import com.github.ggruzdov.slideshow.response.PlayStatsResponse;
+import com.github.ggruzdov.slideshow.service.AnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequestMapping("/analytics")
+@RequiredArgsConstructor
+@Tag(name = "Analytics", description = "API endpoints for proof of play statistics")
+public class AnalyticsController {
+
+    private final AnalyticsService analyticsService;
+
+    @Operation(
+        summary = "Get play counts of a slideshow",
+        description = "Returns play counts of all the slideshow images within the time range by minute, hour or day buckets(UTC)"
+    )
+    @GetMapping(value = "/slideshows/{id}/plays", produces = MediaType.APPLICATION_JSON_VALUE)
+    public PlayStatsResponse getSlideShowPlays(@PathVariable Integer id, @Valid PlayStatsRequest request) {
+        log.info("Getting slideshow plays, id = {}, request = {}", id, request);
+        return analyticsService.getSlideShowPlays(id, request);
+    }
+
+    @Operation(
+        summary = "Get play counts of an image",
+        description = "Returns play counts of the image in all slideshows within the time range by minute, hour or day buckets(UTC)"
+    )
+    @GetMapping(value = "/images/{id}/plays", produces = MediaType.APPLICATION_JSON_VALUE)
+    public PlayStatsResponse getImagePlays(@PathVariable Integer id, @Valid PlayStatsRequest request) {
+        log.info("Getting image plays, id = {}, request = {}", id, request);
+        return analyticsService.getImagePlays(id, request);
+    }
+}
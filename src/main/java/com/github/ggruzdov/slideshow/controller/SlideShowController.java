@@ -1,26 +1,53 @@
 package com.github.ggruzdov.slideshow.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.ggruzdov.slideshow.component.SlideShowUpdatesBroadcaster;
+import com.github.ggruzdov.slideshow.component.SlideShowVersions;
 import com.github.ggruzdov.slideshow.request.AddImageRequest;
+import com.github.ggruzdov.slideshow.request.DeleteImagesRequest;
 import com.github.ggruzdov.slideshow.request.ImageSearchRequest;
+import com.github.ggruzdov.slideshow.request.MembershipChangesRequest;
+import com.github.ggruzdov.slideshow.request.OrderedImagesRequest;
 import com.github.ggruzdov.slideshow.response.AddImageResponse;
 import com.github.ggruzdov.slideshow.response.AddSlideShowResponse;
 import com.github.ggruzdov.slideshow.response.ImageDetailsResponse;
+import com.github.ggruzdov.slideshow.response.MembershipChangesResponse;
 import com.github.ggruzdov.slideshow.response.OrderedSlideShowDetailsResponse;
+import com.github.ggruzdov.slideshow.service.ImageImportService;
+import com.github.ggruzdov.slideshow.service.ProofOfPlayIngestionService;
+import com.github.ggruzdov.slideshow.service.SlideShowMembershipService;
 import com.github.ggruzdov.slideshow.service.SlideShowService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 @RestController
@@ -28,29 +55,126 @@ import java.util.List;
 @Tag(name = "Slideshow series", description = "API endpoints for managing slideshows and images")
 public class SlideShowController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final SlideShowService slideShowService;
+    private final SlideShowMembershipService slideShowMembershipService;
+    private final SlideShowVersions slideShowVersions;
+    private final SlideShowUpdatesBroadcaster slideShowUpdatesBroadcaster;
+    private final ProofOfPlayIngestionService proofOfPlayIngestionService;
+    private final ImageImportService imageImportService;
+    private final ObjectMapper objectMapper;
+
+    // Rows are written into a shared generator which is flushed by chunks, not after every row
+    private ObjectWriter ndjsonRowWriter;
+
+    @PostConstruct
+    void init() {
+        ndjsonRowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
 
     @Operation(
-        summary = "Get a slideshow with ordered images by addition date",
-        description = "Retrieves a slideshow by ID with its images ordered by addition date"
+        summary = "Get a slideshow with ordered images by position",
+        description = "Retrieves a slideshow by ID with its images ordered by position, appended images go last. " +
+            "If size is passed, a page of images after the given position is returned and the next cursor is in X-Next-Cursor header. " +
+            "Supports conditional requests: responds with 304 if If-None-Match contains the current ETag"
     )
     @GetMapping(value = "/slideshow/{id}/ordered", produces = MediaType.APPLICATION_JSON_VALUE)
-    public OrderedSlideShowDetailsResponse getSlideshowOrdered(@PathVariable Integer id) {
-        log.info("Getting ordered slideshow, id = {}", id);
-         return slideShowService.getOrderedSlideShow(id);
+    public ResponseEntity<OrderedSlideShowDetailsResponse> getSlideshowOrdered(
+        @PathVariable Integer id,
+        @Valid OrderedImagesRequest request,
+        HttpServletRequest servletRequest
+    ) {
+        // The version must be taken before the slideshow is read, otherwise a concurrent change might be missed
+        var eTag = slideShowVersions.eTag(id);
+        // The request is checked without the response, otherwise the ETag header would be set before the body is read
+        if (new ServletWebRequest(servletRequest).checkNotModified(eTag)) {
+            log.debug("Ordered slideshow is not modified, id = {}", id);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
+        log.info("Getting ordered slideshow, id = {}, request = {}", id, request);
+        var slideShow = slideShowService.getOrderedSlideShow(id, request);
+        var response = ResponseEntity.ok();
+        // The slideshow changed while it was read, the body may be of either version, so no ETag is issued
+        if (eTag.equals(slideShowVersions.eTag(id))) {
+            response.eTag(eTag);
+        } else {
+            log.debug("Ordered slideshow changed while it was read, ETag is skipped, id = {}", id);
+        }
+        if (slideShow.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, slideShow.nextCursor().toString());
+        }
+
+        return response.body(slideShow);
+    }
+
+    @Operation(
+        summary = "Stream ordered images of a slideshow",
+        description = "Streams images of a slideshow ordered by position as newline delimited JSON, one image per line. " +
+            "Supports conditional requests the same way as the ordered endpoint"
+    )
+    @GetMapping(value = "/slideshow/{id}/ordered/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSlideshowOrdered(@PathVariable Integer id, WebRequest webRequest) {
+        var eTag = slideShowVersions.eTag(id);
+        if (webRequest.checkNotModified(eTag)) {
+            log.debug("Ordered slideshow is not modified, id = {}", id);
+            return null;
+        }
+
+        log.info("Streaming ordered slideshow, id = {}", id);
+        return ResponseEntity.ok()
+            .eTag(eTag)
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(ndjson(consumer -> slideShowService.streamOrderedSlideShow(id, consumer)));
+    }
+
+    @Operation(
+        summary = "Subscribe to changes of a slideshow",
+        description = "Server-Sent Events stream: the first event is the current image, then an event is pushed whenever " +
+            "the current image or the images of the slideshow change. Quickly following changes are coalesced into one event. " +
+            "A DELETED event closes the stream, slow clients are disconnected and should reconnect"
+    )
+    @GetMapping(value = "/slideshow/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToSlideshow(@PathVariable Integer id) {
+        log.debug("Subscribing to slideshow changes, id = {}", id);
+        return slideShowUpdatesBroadcaster.subscribe(id);
     }
 
     @Operation(
-        summary = "Simple image search by query params with strict equality",
-        description = "Search for images using query parameters. The search is case insensitive"
+        summary = "Image search by name with exact, prefix or substring match",
+        description = "Search for images using query parameters. The search is case insensitive. " +
+            "Results are ordered by image id and paginated by the keyset cursor, the next cursor is in X-Next-Cursor header. " +
+            "EXACT search returns all the matching images unless size or after is passed"
     )
     @GetMapping(value = "/images/search", produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<ImageDetailsResponse> searchImages(@Valid ImageSearchRequest request) {
+    public ResponseEntity<List<ImageDetailsResponse>> searchImages(@Valid ImageSearchRequest request) {
         log.info("Searching images, request = {}", request);
-        return slideShowService.searchImages(request)
+        var page = slideShowService.searchImages(request);
+        var images = page.images()
             .stream()
             .map(ImageDetailsResponse::from)
             .toList();
+
+        var response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+
+        return response.body(images);
+    }
+
+    @Operation(
+        summary = "Stream image search results",
+        description = "Streams all the images matching the search as newline delimited JSON, one image per line. " +
+            "Pagination parameters are ignored"
+    )
+    @GetMapping(value = "/images/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamImages(@Valid ImageSearchRequest request) {
+        log.info("Streaming images search, request = {}", request);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(ndjson(consumer -> slideShowService.streamImages(request, consumer)));
     }
 
     @Operation(
@@ -64,6 +188,29 @@ public class SlideShowController {
         return new AddImageResponse(image.getId());
     }
 
+    @Operation(
+        summary = "Bulk import of images",
+        description = "Imports images from newline delimited JSON, one image(as in POST /image) per line. " +
+            "The input is processed by chunks and results are streamed back as newline delimited JSON, one result per input line: " +
+            "CREATED, DUPLICATE(the url already exists), INVALID or FAILED(the image couldn't be validated, e.g. the host timed out, the line may be retried). " +
+            "The client should read the results while sending the input"
+    )
+    @PostMapping(value = "/images/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importImages(InputStream input, HttpServletResponse response) throws IOException {
+        log.info("Importing images");
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (var generator = ndjsonGenerator(response.getOutputStream())) {
+            imageImportService.importImages(input, results -> {
+                results.forEach(it -> writeNdjsonRow(generator, it));
+                try {
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
     @Operation(
         summary = "Create a slideshow with a list of images",
         description = "Creates a new slideshow containing the provided list of images"
@@ -95,6 +242,20 @@ public class SlideShowController {
         slideShowService.removeImage(id, imageId);
     }
 
+    @Operation(
+        summary = "Append and remove images of slideshows in bulk",
+        description = "Applies all the changes in one transaction and returns a result per image in the request order. " +
+            "Removals of a slideshow are applied before its appends. Appending a member and removing a non member are no-ops, " +
+            "missing slideshows and images are failures: in ATOMIC mode nothing is applied and 422 is returned, " +
+            "in BEST_EFFORT mode the failed items are skipped"
+    )
+    @PostMapping(value = "/slideshows/membership", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<MembershipChangesResponse> changeMemberships(@Valid @RequestBody MembershipChangesRequest request) {
+        log.info("Changing memberships, slideshows = {}, mode = {}", request.changes().size(), request.mode());
+        var response = slideShowMembershipService.applyChanges(request);
+        return ResponseEntity.status(response.applied() ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY).body(response);
+    }
+
     @Operation(
         summary = "Delete an image and its relations to slideshows",
         description = "Removes an image and all its associated slideshow relationships"
@@ -105,6 +266,17 @@ public class SlideShowController {
         slideShowService.deleteImage(id);
     }
 
+    @Operation(
+        summary = "Delete images and their relations to slideshows",
+        description = "Removes the images and all their associated slideshow relationships in one transaction. " +
+            "Slideshows left without images are deleted as well"
+    )
+    @PostMapping(value = "/images/delete", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void deleteImages(@Valid @RequestBody DeleteImagesRequest request) {
+        log.info("Deleting images, size = {}", request.ids().size());
+        slideShowService.deleteImages(request.ids());
+    }
+
     @Operation(
         summary = "Delete a slideshow",
         description = "Removes a slideshow while preserving all related images in the system"
@@ -117,11 +289,38 @@ public class SlideShowController {
 
     @Operation(
         summary = "Save proof of play event and change active image",
-        description = "Records a proof of play event and updates the active image in a slideshow"
+        description = "Records a proof of play event and updates the active image in a slideshow. " +
+            "In async ingestion mode the event is acknowledged as soon as it is buffered"
     )
     @PostMapping("/slideshow/{id}/proof-of-play/{imageId}")
     public void saveProofOfPlay(@PathVariable Integer id, @PathVariable Integer imageId) {
-        log.info("Saving proof of play, slideShowId = {}, imageId = {} ", id, imageId);
-        slideShowService.saveProofOfPlay(id, imageId);
+        log.debug("Saving proof of play, slideShowId = {}, imageId = {} ", id, imageId);
+        proofOfPlayIngestionService.submit(id, imageId);
+    }
+
+    // Every row is written as soon as it is fetched, so the memory used doesn't depend on the result size.
+    // Flushing is left to the servlet output buffer, otherwise every row would be sent as a separate chunk.
+    private StreamingResponseBody ndjson(Consumer<Consumer<Object>> rows) {
+        return out -> {
+            try (var generator = ndjsonGenerator(out)) {
+                rows.accept(row -> writeNdjsonRow(generator, row));
+            }
+        };
+    }
+
+    private JsonGenerator ndjsonGenerator(OutputStream out) throws IOException {
+        var generator = objectMapper.createGenerator(out);
+        // Rows are separated by new lines instead of the default space
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private void writeNdjsonRow(JsonGenerator generator, Object row) {
+        try {
+            ndjsonRowWriter.writeValue(generator, row);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,8 @@
+package com.github.ggruzdov.slideshow.event;
+
+/**
+ * Published by ChangeNotifier when changes of other instances might have been missed(the listening connection was lost),
+ * so any local state derived from the database must be dropped or reloaded.
+ */
+public record CachesResetEvent() {
+}
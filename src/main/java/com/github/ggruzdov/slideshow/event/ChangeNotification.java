@@ -0,0 +1,26 @@
+package com.github.ggruzdov.slideshow.event;
+
+import java.util.List;
+
+/**
+ * Payload of a Postgres notification about changes committed by an instance, see ChangeNotifier.
+ * Only ids are sent, so the payload stays far below the 8000 bytes limit.
+ *
+ * @param node id of the sending instance, instances ignore their own notifications
+ */
+public record ChangeNotification(
+    String node,
+    Type type,
+    List<Integer> ids
+) {
+
+    public enum Type {
+        // Slide show changes, see SlideShowChangedEvent.Change
+        MEMBERSHIP,
+        CURRENT_IMAGE,
+        DELETED,
+        // Image changes
+        IMAGES_CREATED,
+        IMAGES_DELETED
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.ggruzdov.slideshow.event;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Published by SlideShowService when images are created or deleted, or by ChangeNotifier when it is done by another instance.
+ *
+ * @param created names of created images by their ids
+ */
+public record ImagesChangedEvent(
+    Map<Integer, String> created,
+    Collection<Integer> deletedIds
+) {
+
+    public static ImagesChangedEvent deleted(Collection<Integer> imageIds) {
+        return new ImagesChangedEvent(Map.of(), imageIds);
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.ggruzdov.slideshow.event;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published by SlideShowService whenever slide shows or their current images are changed,
+ * or by ChangeNotifier when they are changed by another instance.
+ * Listeners are supposed to be transactional, i.e. to react only after the change is committed.
+ */
+public record SlideShowChangedEvent(
+    Collection<Integer> slideShowIds,
+    Change change
+) {
+
+    public static SlideShowChangedEvent of(Integer slideShowId, Change change) {
+        return new SlideShowChangedEvent(Set.of(slideShowId), change);
+    }
+
+    public enum Change {
+        // Images were added or removed, the current image might be changed as well
+        MEMBERSHIP,
+        // Only the current image was switched
+        CURRENT_IMAGE,
+        DELETED;
+
+        // The most significant of two coalesced changes: DELETED, then MEMBERSHIP, then CURRENT_IMAGE
+        public static Change merge(Change previous, Change next) {
+            return previous == null || next == DELETED || previous == CURRENT_IMAGE ? next : previous;
+        }
+    }
+}
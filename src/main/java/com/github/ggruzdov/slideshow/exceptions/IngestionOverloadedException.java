@@ -0,0 +1,8 @@
+package com.github.ggruzdov.slideshow.exceptions;
+
+public class IngestionOverloadedException extends RuntimeException {
+
+    public IngestionOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.ggruzdov.slideshow.model;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// Bucket size of proof of play rollups, buckets are aligned to UTC
+public enum Granularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    Granularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public Instant bucketOf(Instant time) {
+        return time.truncatedTo(unit);
+    }
+
+    public long bucketsBetween(Instant from, Instant to) {
+        return unit.between(bucketOf(from), to) + 1;
+    }
+}
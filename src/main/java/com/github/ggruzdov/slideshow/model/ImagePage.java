@@ -0,0 +1,7 @@
+package com.github.ggruzdov.slideshow.model;
+
+import java.util.List;
+
+// Image search results, nextCursor is null when there are no more matching images
+public record ImagePage(List<Image> images, Integer nextCursor) {
+}
@@ -0,0 +1,26 @@
+package com.github.ggruzdov.slideshow.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+/**
+ * Row of outbox_events. Consumers may see an event more than once(e.g. the relay fails after publishing),
+ * the id is unique and increasing, so it is the deduplication key.
+ *
+ * @param payload JSON, serialized as is
+ */
+public record OutboxEvent(
+    long id,
+    Type type,
+    @JsonRawValue String payload,
+    Instant createdAt
+) {
+
+    public enum Type {
+        // slideShowId, imageId, playedAt
+        PROOF_OF_PLAY,
+        // slideShowId, change(MEMBERSHIP or DELETED), current image switches are covered by proofs of play
+        SLIDESHOW_CHANGED
+    }
+}
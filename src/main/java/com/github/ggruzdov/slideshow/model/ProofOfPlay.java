@@ -5,12 +5,12 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.Immutable;
 
 import java.time.Instant;
@@ -25,7 +25,9 @@ import java.time.Instant;
 public class ProofOfPlay {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "proofs_of_play_id_seq")
+    // The actual allocation size is the sequence increment, see R__id_allocation_sizes.sql
+    @SequenceGenerator(name = "proofs_of_play_id_seq", allocationSize = 50, sequenceName = "proofs_of_play_id_seq")
     private Long id;
 
     @Column(nullable = false)
@@ -34,11 +36,13 @@ public class ProofOfPlay {
     @Column(nullable = false)
     private Integer slideShowId;
 
-    @CreationTimestamp
+    // Set by the caller, since the insert is postponed until flush and rollups need the time right away
+    @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
-    public ProofOfPlay(Integer slideShowId, Integer imageId) {
+    public ProofOfPlay(Integer slideShowId, Integer imageId, Instant createdAt) {
         this.slideShowId = slideShowId;
         this.imageId = imageId;
+        this.createdAt = createdAt;
     }
 }
@@ -0,0 +1,13 @@
+package com.github.ggruzdov.slideshow.model;
+
+import java.time.Instant;
+
+/**
+ * Not persisted yet proof of play, the time of play is captured when the event is received.
+ */
+public record ProofOfPlayEvent(
+    Integer slideShowId,
+    Integer imageId,
+    Instant playedAt
+) {
+}
@@ -5,7 +5,9 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -25,13 +27,20 @@ import java.util.Objects;
 public class SlideShow {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "slide_shows_id_seq")
+    // The actual allocation size is the sequence increment, see R__id_allocation_sizes.sql
+    @SequenceGenerator(name = "slide_shows_id_seq", allocationSize = 50, sequenceName = "slide_shows_id_seq")
     private Integer id;
 
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
+    // Bumped on membership changes, and on current image switches in OPTIMISTIC concurrency mode
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Override
     public final boolean equals(Object o) {
         if (this == o) return true;
@@ -5,6 +5,7 @@ import jakarta.persistence.Embeddable;
 import jakarta.persistence.EmbeddedId;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -32,12 +33,21 @@ public class SlideShowImage {
     @Column(name = "is_current", nullable = false)
     private boolean isCurrent = false;
 
+    // Order of the image in the slide show, unique within the slide show but not necessarily sequential
+    @Column(name = "position", nullable = false)
+    private Integer position;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
 
-    public SlideShowImage(PK pk) {
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public SlideShowImage(PK pk, Integer position) {
         this.pk = pk;
+        this.position = position;
     }
 
     public Integer getSlideShowId() {
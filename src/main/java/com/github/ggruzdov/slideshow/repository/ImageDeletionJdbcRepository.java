@@ -0,0 +1,94 @@
+package com.github.ggruzdov.slideshow.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set-based statements deleting images from all their slide shows at once.
+ * Every statement takes the image ids as a single array parameter, so the number of statements and round trips
+ * depends neither on the number of images nor on the number of slide shows they belong to.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImageDeletionJdbcRepository {
+
+    // Ordering by id guarantees the same lock acquisition order for concurrent deletions(see SlideShowRepository.findAllByIdForUpdate).
+    // The version is bumped, so concurrent optimistic proofs of play of these slide shows are retried.
+    private static final String LOCK_SLIDE_SHOWS_SQL = """
+        with locked as (
+            select id from slide_shows
+            where id in (select slide_show_id from slide_shows_images where image_id = any(?))
+            order by id
+            for update
+        )
+        update slide_shows ss set version = ss.version + 1 from locked where ss.id = locked.id
+        returning ss.id
+        """;
+
+    private static final String LOCK_IMAGES_SQL = "select id from images where id = any(?) order by id for update";
+
+    // Where a deleted image is the current one, the next remaining image becomes current,
+    // or the first remaining one if the deleted image is the last. Both lookups are seeks on slide_show_position_uidx.
+    private static final String REASSIGN_CURRENT_SQL = """
+        update slide_shows_images ssi set is_current = true, version = ssi.version + 1
+        from (
+            select cur.slide_show_id, coalesce(
+                (select n.image_id from slide_shows_images n
+                 where n.slide_show_id = cur.slide_show_id and n.position > cur.position and n.image_id <> all(?)
+                 order by n.position limit 1),
+                (select n.image_id from slide_shows_images n
+                 where n.slide_show_id = cur.slide_show_id and n.image_id <> all(?)
+                 order by n.position limit 1)
+            ) as image_id
+            from slide_shows_images cur
+            where cur.image_id = any(?) and cur.is_current
+        ) next
+        where ssi.slide_show_id = next.slide_show_id and ssi.image_id = next.image_id
+        """;
+
+    private static final String DELETE_SLIDE_SHOWS_IMAGES_SQL = "delete from slide_shows_images where image_id = any(?) returning slide_show_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return ids of the slide shows containing any of the images
+     */
+    public List<Integer> lockSlideShows(Collection<Integer> imageIds) {
+        return jdbcTemplate.query(LOCK_SLIDE_SHOWS_SQL, arrayParameters(imageIds, 1), (rs, rowNum) -> rs.getInt(1));
+    }
+
+    /**
+     * @return ids of the existing images
+     */
+    public List<Integer> lockImages(Collection<Integer> imageIds) {
+        return jdbcTemplate.query(LOCK_IMAGES_SQL, arrayParameters(imageIds, 1), (rs, rowNum) -> rs.getInt(1));
+    }
+
+    public int reassignCurrentImages(Collection<Integer> imageIds) {
+        return jdbcTemplate.update(REASSIGN_CURRENT_SQL, arrayParameters(imageIds, 3));
+    }
+
+    /**
+     * @return ids of the slide shows the images were removed from
+     */
+    public List<Integer> deleteSlideShowsImages(Collection<Integer> imageIds) {
+        return jdbcTemplate.query(DELETE_SLIDE_SHOWS_IMAGES_SQL, arrayParameters(imageIds, 1), (rs, rowNum) -> rs.getInt(1))
+            .stream()
+            .distinct()
+            .toList();
+    }
+
+    private PreparedStatementSetter arrayParameters(Collection<Integer> imageIds, int count) {
+        return ps -> {
+            var array = ps.getConnection().createArrayOf("integer", imageIds.toArray());
+            for (int i = 1; i <= count; i++) {
+                ps.setArray(i, array);
+            }
+        };
+    }
+}
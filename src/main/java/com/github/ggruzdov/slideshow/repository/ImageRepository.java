@@ -1,26 +1,68 @@
 package com.github.ggruzdov.slideshow.repository;
 
 import com.github.ggruzdov.slideshow.model.Image;
+import com.github.ggruzdov.slideshow.response.ImageDetailsResponse;
 import com.github.ggruzdov.slideshow.response.OrderedImageDetailsResponse;
-import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface ImageRepository extends JpaRepository<Image, Integer> {
 
-    List<Image> getAllByName(String name);
+    // Rows are fetched from a server side cursor by chunks of this size while a stream is consumed
+    String STREAM_FETCH_SIZE = "500";
 
-    @Query("select i from Image i where i.id = :id")
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    Image findByIdForUpdate(Integer id);
+    String ORDERED_IMAGES_QUERY =
+        "select new com.github.ggruzdov.slideshow.response.OrderedImageDetailsResponse(i.id, i.url, i.duration, ssi.isCurrent, ssi.createdAt, i.createdAt, ssi.position) " +
+        "from Image i join SlideShowImage ssi on i.id = ssi.pk.imageId where ssi.pk.slideShowId = :slideShowId ";
 
-    @Query(
-        "select new com.github.ggruzdov.slideshow.response.OrderedImageDetailsResponse(i.id, i.url, i.duration, ssi.isCurrent, ssi.createdAt, i.createdAt) " +
-        "from Image i join SlideShowImage ssi on i.id = ssi.pk.imageId where ssi.pk.slideShowId = :slideShowId " +
-        "order by ssi.createdAt"
-    )
-    List<OrderedImageDetailsResponse> findAllSortedByAdditionDateAsc(Integer slideShowId);
-}
\ No newline at end of file
+    String IMAGE_DETAILS_QUERY =
+        "select new com.github.ggruzdov.slideshow.response.ImageDetailsResponse(i.id, i.url, i.duration, i.createdAt) from Image i ";
+
+    // Keyset pagination by id, see ImageSearchRequest.after
+    List<Image> findAllByNameAndIdGreaterThanOrderById(String name, Integer afterId, Limit limit);
+
+    // SQL counterparts of ImageNameIndex search, LIKE '%...%' can't use name_idx
+    List<Image> findAllByNameStartingWithAndIdGreaterThanOrderById(String prefix, Integer afterId, Limit limit);
+
+    List<Image> findAllByNameContainingAndIdGreaterThanOrderById(String substring, Integer afterId, Limit limit);
+
+    List<Image> findAllByIdInOrderById(Collection<Integer> ids);
+
+    @Query("select i.url from Image i where i.url in :urls")
+    Set<String> findExistingUrls(Collection<String> urls);
+
+    // Streaming search methods return DTOs, so nothing piles up in the persistence context.
+    // Postgres uses a cursor for the fetch size only within a transaction.
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(IMAGE_DETAILS_QUERY + "where i.name = ?1 order by i.id")
+    Stream<ImageDetailsResponse> streamAllByName(String name);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(IMAGE_DETAILS_QUERY + "where i.name like ?#{escape([0])}% escape ?#{escapeCharacter()} order by i.id")
+    Stream<ImageDetailsResponse> streamAllByNameStartingWith(String prefix);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(IMAGE_DETAILS_QUERY + "where i.name like %?#{escape([0])}% escape ?#{escapeCharacter()} order by i.id")
+    Stream<ImageDetailsResponse> streamAllByNameContaining(String substring);
+
+    // Cached by OrderedSlideShowCache
+    @Query(ORDERED_IMAGES_QUERY + "order by ssi.position")
+    List<OrderedImageDetailsResponse> findAllSortedByPosition(Integer slideShowId);
+
+    // Keyset pagination by position, pages are not cached
+    @Query(ORDERED_IMAGES_QUERY + "and ssi.position > :afterPosition order by ssi.position")
+    List<OrderedImageDetailsResponse> findPageSortedByPosition(Integer slideShowId, Integer afterPosition, Limit limit);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query(ORDERED_IMAGES_QUERY + "order by ssi.position")
+    Stream<OrderedImageDetailsResponse> streamAllSortedByPosition(Integer slideShowId);
+}
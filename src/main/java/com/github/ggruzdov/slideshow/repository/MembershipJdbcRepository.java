@@ -0,0 +1,147 @@
+package com.github.ggruzdov.slideshow.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk membership changes of slide shows, see SlideShowMembershipService.
+ * Lookups take ids as array parameters and changes are written by JDBC batches,
+ * so the number of round trips doesn't depend on the number of images.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MembershipJdbcRepository {
+
+    // Same lock order and version bump as ImageDeletionJdbcRepository
+    private static final String LOCK_SLIDE_SHOWS_SQL = """
+        with locked as (select id from slide_shows where id = any(?) order by id for update)
+        update slide_shows ss set version = ss.version + 1 from locked where ss.id = locked.id
+        returning ss.id
+        """;
+
+    // Key share locks keep the images from being deleted till the relations are inserted,
+    // they are taken in the order of ImageDeletionJdbcRepository update locks, so bulk changes and deletions don't deadlock
+    private static final String LOCK_IMAGES_SQL = "select id from images where id = any(?) order by id for key share";
+
+    private static final String MEMBERSHIPS_SQL = """
+        select slide_show_id, image_id, position, is_current from slide_shows_images
+        where slide_show_id = any(?) and image_id = any(?)
+        """;
+
+    // Single backward index scan of slide_show_position_uidx per slide show
+    private static final String NEXT_POSITIONS_SQL = """
+        select s.id, (select coalesce(max(ssi.position) + 1, 0) from slide_shows_images ssi where ssi.slide_show_id = s.id)
+        from unnest(?) as s(id)
+        """;
+
+    private static final String DELETE_SQL = "delete from slide_shows_images where slide_show_id = ? and image_id = ?";
+
+    private static final String INSERT_SQL = "insert into slide_shows_images (slide_show_id, image_id, position) values (?, ?, ?)";
+
+    // Slide shows without a current image get the image next to the removed current one(or the first one).
+    // Position -1 is passed for slide shows whose current image wasn't removed, they get the first image if any.
+    private static final String RECONCILE_CURRENT_SQL = """
+        update slide_shows_images ssi set is_current = true, version = ssi.version + 1
+        from (
+            select s.id as slide_show_id, coalesce(
+                (select n.image_id from slide_shows_images n where n.slide_show_id = s.id and n.position > s.position order by n.position limit 1),
+                (select n.image_id from slide_shows_images n where n.slide_show_id = s.id order by n.position limit 1)
+            ) as image_id
+            from unnest(?, ?) as s(id, position)
+            where not exists (select 1 from slide_shows_images c where c.slide_show_id = s.id and c.is_current)
+        ) next
+        where ssi.slide_show_id = next.slide_show_id and ssi.image_id = next.image_id
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return ids of the existing slide shows
+     */
+    public Set<Integer> lockSlideShows(Collection<Integer> slideShowIds) {
+        return new HashSet<>(jdbcTemplate.query(
+            LOCK_SLIDE_SHOWS_SQL,
+            ps -> ps.setArray(1, intArray(ps.getConnection(), slideShowIds)),
+            (rs, rowNum) -> rs.getInt(1)
+        ));
+    }
+
+    /**
+     * @return ids of the existing images
+     */
+    public Set<Integer> lockImages(Collection<Integer> imageIds) {
+        return new HashSet<>(jdbcTemplate.query(
+            LOCK_IMAGES_SQL,
+            ps -> ps.setArray(1, intArray(ps.getConnection(), imageIds)),
+            (rs, rowNum) -> rs.getInt(1)
+        ));
+    }
+
+    // Only the relations between the given slide shows and images
+    public List<Membership> findMemberships(Collection<Integer> slideShowIds, Collection<Integer> imageIds) {
+        return jdbcTemplate.query(
+            MEMBERSHIPS_SQL,
+            ps -> {
+                ps.setArray(1, intArray(ps.getConnection(), slideShowIds));
+                ps.setArray(2, intArray(ps.getConnection(), imageIds));
+            },
+            (rs, rowNum) -> new Membership(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getBoolean(4))
+        );
+    }
+
+    public Map<Integer, Integer> findNextPositions(Collection<Integer> slideShowIds) {
+        var positions = new HashMap<Integer, Integer>();
+        jdbcTemplate.query(
+            NEXT_POSITIONS_SQL,
+            ps -> ps.setArray(1, intArray(ps.getConnection(), slideShowIds)),
+            rs -> {
+                positions.put(rs.getInt(1), rs.getInt(2));
+            }
+        );
+
+        return positions;
+    }
+
+    public void deleteAll(List<Membership> memberships, int batchSize) {
+        jdbcTemplate.batchUpdate(DELETE_SQL, memberships, batchSize, (ps, it) -> {
+            ps.setInt(1, it.slideShowId());
+            ps.setInt(2, it.imageId());
+        });
+    }
+
+    public void insertAll(List<Membership> memberships, int batchSize) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, memberships, batchSize, (ps, it) -> {
+            ps.setInt(1, it.slideShowId());
+            ps.setInt(2, it.imageId());
+            ps.setInt(3, it.position());
+        });
+    }
+
+    /**
+     * @param removedCurrentPositions positions of the removed current images by slide show ids, -1 if it wasn't removed
+     */
+    public int reconcileCurrentImages(Map<Integer, Integer> removedCurrentPositions) {
+        return jdbcTemplate.update(RECONCILE_CURRENT_SQL, ps -> {
+            ps.setArray(1, intArray(ps.getConnection(), removedCurrentPositions.keySet()));
+            ps.setArray(2, intArray(ps.getConnection(), removedCurrentPositions.values()));
+        });
+    }
+
+    private static Array intArray(Connection connection, Collection<Integer> values) throws SQLException {
+        return connection.createArrayOf("integer", values.toArray());
+    }
+
+    public record Membership(int slideShowId, int imageId, int position, boolean current) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.ggruzdov.slideshow.repository;
+
+import com.github.ggruzdov.slideshow.model.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxJdbcRepository {
+
+    // All the payloads in one statement, whatever their number
+    private static final String INSERT_SQL = "insert into outbox_events (type, payload) select ?, unnest(?)";
+
+    // Concurrent relay workers skip each other's rows instead of waiting for them
+    private static final String LOCK_BATCH_SQL = "select id, type, payload, created_at from outbox_events order by id limit ? for update skip locked";
+
+    private static final String DELETE_SQL = "delete from outbox_events where id = any(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(OutboxEvent.Type type, Collection<String> payloads) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.update(INSERT_SQL, ps -> {
+            ps.setString(1, type.name());
+            ps.setArray(2, ps.getConnection().createArrayOf("text", payloads.toArray()));
+        });
+    }
+
+    /**
+     * Must be called within a transaction, the rows stay locked till it completes.
+     */
+    public List<OutboxEvent> lockBatch(int limit) {
+        return jdbcTemplate.query(
+            LOCK_BATCH_SQL,
+            (rs, rowNum) -> new OutboxEvent(
+                rs.getLong("id"),
+                OutboxEvent.Type.valueOf(rs.getString("type")),
+                rs.getString("payload"),
+                rs.getTimestamp("created_at").toInstant()
+            ),
+            limit
+        );
+    }
+
+    public void deleteAll(Collection<Long> ids) {
+        jdbcTemplate.update(DELETE_SQL, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.ggruzdov.slideshow.repository;
+
+import com.github.ggruzdov.slideshow.model.Granularity;
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
+import com.github.ggruzdov.slideshow.response.PlayStatsResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Incremental rollups of proofs of play. Events are counted in memory first, so a batch turns into
+ * a single upsert per(granularity, bucket, slide show, image).
+ */
+@Repository
+@RequiredArgsConstructor
+public class PlayRollupJdbcRepository {
+
+    private static final String UPSERT_SQL = """
+        insert into proof_of_play_rollups (granularity, slide_show_id, bucket, image_id, plays) values (?, ?, ?, ?, ?)
+        on conflict (granularity, slide_show_id, bucket, image_id) do update set plays = proof_of_play_rollups.plays + excluded.plays
+        """;
+
+    private static final String SLIDE_SHOW_PLAYS_SQL = """
+        select bucket, sum(plays) as plays from proof_of_play_rollups
+        where granularity = ? and slide_show_id = ? and bucket >= ? and bucket < ?
+        group by bucket order by bucket
+        """;
+
+    private static final String IMAGE_PLAYS_SQL = """
+        select bucket, sum(plays) as plays from proof_of_play_rollups
+        where granularity = ? and image_id = ? and bucket >= ? and bucket < ?
+        group by bucket order by bucket
+        """;
+
+    private static final String DELETE_EXPIRED_SQL = """
+        delete from proof_of_play_rollups where ctid = any(array(
+            select ctid from proof_of_play_rollups where granularity = ? and bucket < ? limit ?
+        ))
+        """;
+
+    // Arbitrary application wide key of the advisory lock
+    private static final long EXPIRATION_LOCK_KEY = 0x5D0F_9A12L;
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::granularity)
+        .thenComparing(Key::slideShowId)
+        .thenComparing(Key::bucket)
+        .thenComparing(Key::imageId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void increment(List<ProofOfPlayEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        // Sorted keys make concurrent transactions lock the rows in the same order, so they don't deadlock
+        var counts = new TreeMap<Key, Long>(KEY_ORDER);
+        for (var event : events) {
+            for (var granularity : Granularity.values()) {
+                var key = new Key(granularity, event.slideShowId(), granularity.bucketOf(event.playedAt()), event.imageId());
+                counts.merge(key, 1L, Long::sum);
+            }
+        }
+
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new ArrayList<>(counts.entrySet()), counts.size(), (ps, entry) -> {
+            var key = entry.getKey();
+            ps.setString(1, key.granularity().name());
+            ps.setInt(2, key.slideShowId());
+            ps.setTimestamp(3, Timestamp.from(key.bucket()));
+            ps.setInt(4, key.imageId());
+            ps.setLong(5, entry.getValue());
+        });
+    }
+
+    public List<PlayStatsResponse.Bucket> findSlideShowPlays(Integer slideShowId, Granularity granularity, Instant from, Instant to) {
+        return findPlays(SLIDE_SHOW_PLAYS_SQL, slideShowId, granularity, from, to);
+    }
+
+    public List<PlayStatsResponse.Bucket> findImagePlays(Integer imageId, Granularity granularity, Instant from, Instant to) {
+        return findPlays(IMAGE_PLAYS_SQL, imageId, granularity, from, to);
+    }
+
+    // Deletes at most limit rows, so expiration is split into short transactions
+    public int deleteOlderThan(Granularity granularity, Instant threshold, int limit) {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, granularity.name(), Timestamp.from(threshold), limit);
+    }
+
+    // Transaction scoped like the lock of ProofOfPlayPartitionManager, returns false if another instance holds it
+    public boolean tryLockExpiration() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, EXPIRATION_LOCK_KEY));
+    }
+
+    private List<PlayStatsResponse.Bucket> findPlays(String sql, Integer id, Granularity granularity, Instant from, Instant to) {
+        return jdbcTemplate.query(
+            sql,
+            (rs, rowNum) -> new PlayStatsResponse.Bucket(rs.getTimestamp("bucket").toInstant(), rs.getLong("plays")),
+            granularity.name(), id, Timestamp.from(granularity.bucketOf(from)), Timestamp.from(to)
+        );
+    }
+
+    private record Key(Granularity granularity, Integer slideShowId, Instant bucket, Integer imageId) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.ggruzdov.slideshow.repository;
+
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Loads proof-of-play events by COPY FROM STDIN in the binary format, i.e. one statement per batch
+ * without SQL parsing, parameter binding and text conversions on the server side.
+ * Rows are streamed to the server as they are encoded, so memory usage doesn't depend on the batch size.
+ * <p>
+ * Binary format: 19 bytes header, then per row a 16-bit field count followed by 32-bit length and value
+ * of every field, and a -1 field count as the trailer. Timestamps are microseconds since 2000-01-01 UTC.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "slideshow.proof-of-play.writer", havingValue = "copy")
+public class ProofOfPlayCopyWriter implements ProofOfPlayWriter {
+
+    private static final String COPY_SQL = "copy proofs_of_play (slide_show_id, image_id, created_at) from stdin (format binary)";
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final short FIELDS = 3;
+    private static final long POSTGRES_EPOCH_MICROS = Duration.between(Instant.EPOCH, Instant.parse("2000-01-01T00:00:00Z")).toNanos() / 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<ProofOfPlayEvent> events, int batchSize) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        var rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            var copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_SQL, BUFFER_SIZE);
+            try {
+                var out = new DataOutputStream(new BufferedOutputStream(copy, BUFFER_SIZE));
+                writeHeader(out);
+                for (var event : events) {
+                    writeRow(out, event);
+                }
+                out.writeShort(-1);
+                out.flush();
+                return copy.endCopy();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to copy proofs of play", e);
+            } finally {
+                // Otherwise the connection stays in the COPY state
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+        log.debug("Copied proofs of play, rows = {}", rows);
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.write(SIGNATURE);
+        // Flags and header extension length
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    private static void writeRow(DataOutputStream out, ProofOfPlayEvent event) throws IOException {
+        out.writeShort(FIELDS);
+        out.writeInt(Integer.BYTES);
+        out.writeInt(event.slideShowId());
+        out.writeInt(Integer.BYTES);
+        out.writeInt(event.imageId());
+        out.writeInt(Long.BYTES);
+        out.writeLong(toPostgresMicros(event.playedAt()));
+    }
+
+    private static long toPostgresMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1000 - POSTGRES_EPOCH_MICROS;
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.ggruzdov.slideshow.repository;
+
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Plain JDBC access to proofs_of_play. Hibernate could batch ProofOfPlay inserts(its ids come from a pooled sequence),
+ * but proofs of play are written only, so here we skip the entity layer(no entities, no persistence context)
+ * and let the driver rewrite the batch into multi-value inserts(reWriteBatchedInserts).
+ * See ProofOfPlayCopyWriter for the faster alternative.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "slideshow.proof-of-play.writer", havingValue = "batch", matchIfMissing = true)
+public class ProofOfPlayJdbcRepository implements ProofOfPlayWriter {
+
+    private static final String INSERT_SQL = "insert into proofs_of_play (slide_show_id, image_id, created_at) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<ProofOfPlayEvent> events, int batchSize) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, batchSize, (ps, event) -> {
+            ps.setInt(1, event.slideShowId());
+            ps.setInt(2, event.imageId());
+            ps.setTimestamp(3, Timestamp.from(event.playedAt()));
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.ggruzdov.slideshow.repository;
+
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
+
+import java.util.List;
+
+/**
+ * Bulk writer of buffered proof-of-play events, selected by slideshow.proof-of-play.writer.
+ * Single events of SYNC ingestion are still saved by ProofOfPlayRepository.
+ */
+public interface ProofOfPlayWriter {
+
+    /**
+     * Must be called within a transaction, so events are stored along with the rest of the batch changes.
+     *
+     * @param batchSize max amount of rows per statement, writers streaming all the rows at once ignore it
+     */
+    void insertAll(List<ProofOfPlayEvent> events, int batchSize);
+}
@@ -7,7 +7,6 @@ import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
-import java.util.List;
 import java.util.Optional;
 
 public interface SlideShowImageRepository extends JpaRepository<SlideShowImage, SlideShowImage.PK> {
@@ -16,30 +15,15 @@ public interface SlideShowImageRepository extends JpaRepository<SlideShowImage,
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     SlideShowImage findByIdForUpdate(SlideShowImage.PK id);
 
-    @Query(
-        value = """
-            with ssi_ordered as(
-                select ssi.*, lead(ssi.image_id) over () as next_image_id
-                from slide_shows_images ssi
-                where ssi.slide_show_id = :slideShowId
-                order by ssi.created_at
-            )
-            select * from slide_shows_images ssi2
-            where ssi2.image_id = (select ssio.next_image_id from ssi_ordered ssio where ssio.image_id = :imageId)
-           """,
-        nativeQuery = true
-    )
-    Optional<SlideShowImage> getNext(Integer slideShowId, Integer imageId);
-
-    SlideShowImage findFirstByPkSlideShowIdOrderByCreatedAt(Integer slideShowId);
-
-    List<SlideShowImage> findAllByPkImageId(Integer imageId);
+    // Both lookups are single seeks on slide_show_position_uidx
+    Optional<SlideShowImage> findFirstByPkSlideShowIdAndPositionGreaterThanOrderByPosition(Integer slideShowId, Integer position);
 
-    SlideShowImage findByPkSlideShowIdAndIsCurrentTrue(Integer slideShowId);
+    SlideShowImage findFirstByPkSlideShowIdOrderByPosition(Integer slideShowId);
 
-    @Query("delete from SlideShowImage where pk.imageId = :imageId")
-    @Modifying
-    void deleteAllByPkImageId(Integer imageId);
+    @Query("select coalesce(max(ssi.position) + 1, 0) from SlideShowImage ssi where ssi.pk.slideShowId = :slideShowId")
+    int getNextPosition(Integer slideShowId);
+
+    SlideShowImage findByPkSlideShowIdAndIsCurrentTrue(Integer slideShowId);
 
     @Query("delete from SlideShowImage where pk.slideShowId = :slideShowId")
     @Modifying
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,12 +18,27 @@ public interface SlideShowRepository extends JpaRepository<SlideShow, Integer> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<SlideShow> findByIdForUpdate(Integer id);
 
+    // Locks the slide show and bumps its version right away, used for membership changes
+    @Query("select ss from SlideShow ss where ss.id = :id")
+    @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
+    Optional<SlideShow> findByIdForIncrement(Integer id);
+
+    // The version is bumped on commit, fails if the slide show has been changed since it was read
+    @Query("select ss from SlideShow ss where ss.id = :id")
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<SlideShow> findByIdForOptimisticIncrement(Integer id);
+
+    // Ordering by id guarantees the same lock acquisition order for concurrent batches
+    @Query("select ss from SlideShow ss where ss.id in :ids order by ss.id")
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<SlideShow> findAllByIdForUpdate(Collection<Integer> ids);
+
     @Override
     @Query("delete from SlideShow where id = :id")
     @Modifying
     void deleteById(@NonNull Integer id);
 
-    @Query("delete from SlideShow where not exists (select 1 from SlideShowImage ssi where ssi.pk.slideShowId in :ids)")
+    @Query("delete from SlideShow ss where ss.id in :ids and not exists (select 1 from SlideShowImage ssi where ssi.pk.slideShowId = ss.id)")
     @Modifying
-    void deleteIfEmpty(List<Integer> ids);
+    int deleteIfEmpty(Collection<Integer> ids);
 }
\ No newline at end of file
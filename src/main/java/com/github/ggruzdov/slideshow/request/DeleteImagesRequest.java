@@ -0,0 +1,18 @@
+package com.github.ggruzdov.slideshow.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record DeleteImagesRequest(
+
+    // All the images are deleted in one transaction, so the number is limited to keep it short
+    @NotEmpty
+    @Size(max = 1000)
+    @Schema(description = "Ids of the images to delete, unknown ids are ignored", example = "[1, 2, 3]")
+    List<@NotNull Integer> ids
+) {
+}
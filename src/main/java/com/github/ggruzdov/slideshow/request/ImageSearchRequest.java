@@ -1,10 +1,49 @@
 package com.github.ggruzdov.slideshow.request;
 
+import io.swagger.v3.oas.annotations.Parameter;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 
 public record ImageSearchRequest(
 
     @NotBlank
-    String name
+    String name,
+
+    @Parameter(description = "EXACT(default), PREFIX or SUBSTRING")
+    Mode mode,
+
+    @Parameter(description = "Keyset cursor: id of the last image of the previous page, see X-Next-Cursor response header")
+    @Min(0)
+    Integer after,
+
+    @Parameter(description = "Page size, 50 by default. EXACT search returns all the matching images unless size or after is passed")
+    @Min(1)
+    @Max(500)
+    Integer size
 ) {
+    public static final int DEFAULT_SIZE = 50;
+
+    public ImageSearchRequest {
+        mode = mode == null ? Mode.EXACT : mode;
+    }
+
+    // The same name is rarely shared by many images, so EXACT search isn't paged by default
+    public boolean isPaged() {
+        return mode != Mode.EXACT || after != null || size != null;
+    }
+
+    public int afterId() {
+        return after == null ? 0 : after;
+    }
+
+    public int pageSize() {
+        return size == null ? DEFAULT_SIZE : size;
+    }
+
+    public enum Mode {
+        EXACT,
+        PREFIX,
+        SUBSTRING
+    }
 }
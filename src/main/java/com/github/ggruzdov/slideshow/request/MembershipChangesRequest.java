@@ -0,0 +1,73 @@
+package com.github.ggruzdov.slideshow.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+import java.util.Objects;
+
+@Schema(
+    description = "Request to append and remove images of slideshows",
+    example = """
+            {
+                "mode": "ATOMIC",
+                "changes": [
+                    {
+                        "slideShowId": 1,
+                        "remove": [10, 11],
+                        "append": [12, 10]
+                    }
+                ]
+            }
+        """
+)
+public record MembershipChangesRequest(
+
+    @Schema(description = "ATOMIC(default, nothing is applied if any item fails) or BEST_EFFORT(failed items are skipped)")
+    Mode mode,
+
+    @NotEmpty
+    List<@Valid @NotNull Change> changes
+) {
+    // All the changes are applied in one transaction, so the number is limited to keep it short
+    public static final int MAX_ITEMS = 5000;
+
+    public MembershipChangesRequest {
+        mode = mode == null ? Mode.ATOMIC : mode;
+    }
+
+    @AssertTrue(message = "too many images, max = " + MAX_ITEMS)
+    public boolean isWithinLimit() {
+        return changes == null || changes.stream().filter(Objects::nonNull).mapToInt(Change::size).sum() <= MAX_ITEMS;
+    }
+
+    // Removals of a slideshow are applied before its appends, so removing and appending the same image moves it to the end
+    public record Change(
+
+        @NotNull
+        Integer slideShowId,
+
+        @Schema(description = "Ids of the images to append in the given order")
+        List<@NotNull Integer> append,
+
+        @Schema(description = "Ids of the images to remove")
+        List<@NotNull Integer> remove
+    ) {
+        public Change {
+            append = append == null ? List.of() : append;
+            remove = remove == null ? List.of() : remove;
+        }
+
+        private int size() {
+            return append.size() + remove.size();
+        }
+    }
+
+    public enum Mode {
+        ATOMIC,
+        BEST_EFFORT
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.ggruzdov.slideshow.request;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+// Without size the whole slideshow is returned(and cached), otherwise a page of images after the given position
+public record OrderedImagesRequest(
+
+    @Parameter(description = "Keyset cursor: position of the last image of the previous page, see X-Next-Cursor response header")
+    @Min(0)
+    Integer after,
+
+    @Min(1)
+    @Max(500)
+    Integer size
+) {
+    public boolean isPaged() {
+        return size != null;
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.ggruzdov.slideshow.request;
+
+import com.github.ggruzdov.slideshow.model.Granularity;
+import io.swagger.v3.oas.annotations.Parameter;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Instant;
+
+public record PlayStatsRequest(
+
+    @NotNull
+    @Parameter(required = true, description = "Range start(inclusive, aligned down to the bucket start), e.g. 2025-01-01T00:00:00Z")
+    Instant from,
+
+    @NotNull
+    @Parameter(required = true, description = "Range end(exclusive)")
+    Instant to,
+
+    @Parameter(description = "MINUTE, HOUR(default) or DAY")
+    Granularity granularity
+) {
+    // Keeps responses reasonably small, e.g. a week by minutes
+    private static final long MAX_BUCKETS = 10_080;
+
+    public PlayStatsRequest {
+        granularity = granularity == null ? Granularity.HOUR : granularity;
+    }
+
+    @AssertTrue(message = "must be before to")
+    public boolean isFromBeforeTo() {
+        return from == null || to == null || from.isBefore(to);
+    }
+
+    @AssertTrue(message = "range is too large for the granularity, max buckets = " + MAX_BUCKETS)
+    public boolean isRangeWithinLimit() {
+        return from == null || to == null || !from.isBefore(to) || granularity.bucketsBetween(from, to) <= MAX_BUCKETS;
+    }
+}
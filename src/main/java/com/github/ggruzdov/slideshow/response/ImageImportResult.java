@@ -0,0 +1,37 @@
+package com.github.ggruzdov.slideshow.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Result of a single line of a bulk import, lines are numbered from 1
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImageImportResult(
+    long line,
+    Status status,
+    Integer id,
+    String url,
+    String error
+) {
+    public static ImageImportResult created(long line, Integer id, String url) {
+        return new ImageImportResult(line, Status.CREATED, id, url, null);
+    }
+
+    public static ImageImportResult duplicate(long line, String url) {
+        return new ImageImportResult(line, Status.DUPLICATE, null, url, null);
+    }
+
+    public static ImageImportResult invalid(long line, String url, String error) {
+        return new ImageImportResult(line, Status.INVALID, null, url, error);
+    }
+
+    public static ImageImportResult failed(long line, String url, String error) {
+        return new ImageImportResult(line, Status.FAILED, null, url, error);
+    }
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID,
+        // The image couldn't be validated(timeouts, server errors, too many requests to the host), the line may be retried
+        FAILED
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.ggruzdov.slideshow.response;
+
+import java.util.List;
+
+/**
+ * Results of membership changes in the order of the request items.
+ *
+ * @param applied false if an ATOMIC request was rolled back because of failed items
+ */
+public record MembershipChangesResponse(
+    boolean applied,
+    List<Item> items
+) {
+
+    public record Item(
+        Integer slideShowId,
+        Integer imageId,
+        Operation operation,
+        Status status
+    ) {
+    }
+
+    public enum Operation {
+        APPEND,
+        REMOVE
+    }
+
+    public enum Status {
+        APPENDED,
+        REMOVED,
+        // No-ops, they don't fail ATOMIC requests
+        ALREADY_MEMBER,
+        NOT_MEMBER,
+        // Failures
+        SLIDESHOW_NOT_FOUND,
+        IMAGE_NOT_FOUND;
+
+        public boolean isFailure() {
+            return this == SLIDESHOW_NOT_FOUND || this == IMAGE_NOT_FOUND;
+        }
+    }
+}
@@ -8,6 +8,10 @@ public record OrderedImageDetailsResponse(
     Integer duration,
     boolean isCurrent,
     Instant appendedAt,
-    Instant createdAt
+    Instant createdAt,
+    Integer position
 ) {
+    public OrderedImageDetailsResponse withCurrent(boolean isCurrent) {
+        return new OrderedImageDetailsResponse(id, url, duration, isCurrent, appendedAt, createdAt, position);
+    }
 }
@@ -1,9 +1,16 @@
 package com.github.ggruzdov.slideshow.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
+/**
+ * @param nextCursor position of the last image if there are more images after the page, sent as X-Next-Cursor header
+ */
 public record OrderedSlideShowDetailsResponse(
     Integer slideShowId,
-    List<OrderedImageDetailsResponse> images
+    List<OrderedImageDetailsResponse> images,
+    @JsonIgnore
+    Integer nextCursor
 ) {
 }
@@ -0,0 +1,24 @@
+package com.github.ggruzdov.slideshow.response;
+
+import com.github.ggruzdov.slideshow.model.Granularity;
+
+import java.time.Instant;
+import java.util.List;
+
+// Buckets without plays are omitted
+public record PlayStatsResponse(
+    Integer id,
+    Granularity granularity,
+    long totalPlays,
+    List<Bucket> buckets
+) {
+    public PlayStatsResponse(Integer id, Granularity granularity, List<Bucket> buckets) {
+        this(id, granularity, buckets.stream().mapToLong(Bucket::plays).sum(), buckets);
+    }
+
+    public record Bucket(
+        Instant bucket,
+        long plays
+    ) {
+    }
+}
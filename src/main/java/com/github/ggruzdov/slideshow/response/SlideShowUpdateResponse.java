@@ -0,0 +1,15 @@
+package com.github.ggruzdov.slideshow.response;
+
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent.Change;
+
+/**
+ * Server-Sent Event data of a slide show change. On MEMBERSHIP changes the ordered slide show should be fetched again.
+ *
+ * @param currentImageId null if the slide show is deleted
+ */
+public record SlideShowUpdateResponse(
+    Integer slideShowId,
+    Change change,
+    Integer currentImageId
+) {
+}
@@ -0,0 +1,74 @@
+package com.github.ggruzdov.slideshow.service;
+
+import com.github.ggruzdov.slideshow.config.AnalyticsProperties;
+import com.github.ggruzdov.slideshow.model.Granularity;
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
+import com.github.ggruzdov.slideshow.repository.PlayRollupJdbcRepository;
+import com.github.ggruzdov.slideshow.request.PlayStatsRequest;
+import com.github.ggruzdov.slideshow.response.PlayStatsResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Play counts per slide show and per image. Rollups are incremented on the proof of play write path
+ * within the same transaction, reports read only the rollups, never the raw proofs_of_play.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnalyticsService {
+
+    private final PlayRollupJdbcRepository playRollupJdbcRepository;
+    private final AnalyticsProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    // Must be called within the transaction saving the proofs of play
+    public void record(List<ProofOfPlayEvent> events) {
+        playRollupJdbcRepository.increment(events);
+    }
+
+    public PlayStatsResponse getSlideShowPlays(Integer slideShowId, PlayStatsRequest request) {
+        var buckets = playRollupJdbcRepository.findSlideShowPlays(slideShowId, request.granularity(), request.from(), request.to());
+        return new PlayStatsResponse(slideShowId, request.granularity(), buckets);
+    }
+
+    public PlayStatsResponse getImagePlays(Integer imageId, PlayStatsRequest request) {
+        var buckets = playRollupJdbcRepository.findImagePlays(imageId, request.granularity(), request.from(), request.to());
+        return new PlayStatsResponse(imageId, request.granularity(), buckets);
+    }
+
+    // Expired rows are deleted by batches in separate transactions, so autovacuum can reclaim them meanwhile.
+    // Every batch takes an advisory lock, so only one instance expires rollups at a time.
+    @Scheduled(cron = "${slideshow.analytics.retention-cron:0 30 1 * * *}", zone = "UTC")
+    public void deleteExpiredRollups() {
+        var now = Instant.now();
+        var minutes = deleteExpired(Granularity.MINUTE, now.minus(properties.minuteRetention()));
+        var hours = deleteExpired(Granularity.HOUR, now.minus(properties.hourRetention()));
+        log.info("Expired proof of play rollups deleted, minute buckets = {}, hour buckets = {}", minutes, hours);
+    }
+
+    private long deleteExpired(Granularity granularity, Instant threshold) {
+        long deleted = 0;
+        while (true) {
+            var batch = transactionTemplate.execute(tx -> playRollupJdbcRepository.tryLockExpiration()
+                ? playRollupJdbcRepository.deleteOlderThan(granularity, threshold, properties.retentionBatchSize())
+                : null
+            );
+            if (batch == null) {
+                log.info("Proof of play rollups are expired by another instance, granularity = {}", granularity);
+                return deleted;
+            }
+
+            deleted += batch;
+            if (batch < properties.retentionBatchSize()) {
+                return deleted;
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.ggruzdov.slideshow.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.slideshow.component.ImageUrlValidator;
+import com.github.ggruzdov.slideshow.config.ImageImportProperties;
+import com.github.ggruzdov.slideshow.event.ImagesChangedEvent;
+import com.github.ggruzdov.slideshow.exceptions.InvalidImageException;
+import com.github.ggruzdov.slideshow.model.Image;
+import com.github.ggruzdov.slideshow.repository.ImageRepository;
+import com.github.ggruzdov.slideshow.request.AddImageRequest;
+import com.github.ggruzdov.slideshow.response.ImageImportResult;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of images from newline delimited JSON(one AddImageRequest per line).
+ * The input is read line by line and processed by chunks, results of a chunk are handed over
+ * to the caller right after the chunk is committed, so neither input nor output is materialized.
+ * Images already existing(by url) or repeated within a chunk are reported as duplicates
+ * and don't abort the chunk. Images that couldn't be validated(not invalid ones) are reported as failed, so they can be retried.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageImportService {
+
+    private final ImageRepository imageRepository;
+    private final ImageUrlValidator imageUrlValidator;
+    private final ExecutorService executorService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ImageImportProperties properties;
+
+    public void importImages(InputStream input, Consumer<List<ImageImportResult>> chunkResults) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        var chunk = new ArrayList<Line>(properties.chunkSize());
+        var results = new ArrayList<ImageImportResult>(properties.chunkSize());
+        long lineNumber = 0;
+        long created = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+
+            var line = parse(lineNumber, text, results);
+            if (line != null) {
+                chunk.add(line);
+            }
+
+            // Results of invalid lines are accumulated as well, so they are flushed even if few lines are valid
+            if (chunk.size() == properties.chunkSize() || results.size() >= properties.chunkSize()) {
+                created += importChunk(chunk, results);
+                publish(results, chunkResults);
+                chunk.clear();
+            }
+        }
+
+        created += importChunk(chunk, results);
+        publish(results, chunkResults);
+        log.info("Images import finished, lines = {}, created = {}", lineNumber, created);
+    }
+
+    private Line parse(long lineNumber, String text, List<ImageImportResult> results) {
+        AddImageRequest request;
+        try {
+            request = objectMapper.readValue(text, AddImageRequest.class);
+        } catch (JsonProcessingException e) {
+            results.add(ImageImportResult.invalid(lineNumber, null, "Malformed JSON: " + e.getOriginalMessage()));
+            return null;
+        }
+
+        var violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            var details = violations.stream()
+                .map(it -> it.getPropertyPath() + ": " + it.getMessage())
+                .collect(Collectors.joining(","));
+            results.add(ImageImportResult.invalid(lineNumber, request.url(), details));
+            return null;
+        }
+
+        return new Line(lineNumber, request);
+    }
+
+    // Returns the number of created images
+    private int importChunk(List<Line> chunk, List<ImageImportResult> results) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        // Repeated urls are validated only once
+        var unique = new ArrayList<Line>(chunk.size());
+        var seenUrls = new HashSet<String>();
+        for (var line : chunk) {
+            if (seenUrls.add(line.request().url())) {
+                unique.add(line);
+            } else {
+                results.add(ImageImportResult.duplicate(line.number(), line.request().url()));
+            }
+        }
+
+        var valid = validate(unique, results);
+        try {
+            return insert(valid, results);
+        } catch (DataIntegrityViolationException e) {
+            // Some of the urls were inserted concurrently, they are found as existing on the second attempt
+            log.info("Images import chunk conflicted with concurrent inserts, retrying, size = {}", valid.size());
+            return insert(valid, results);
+        }
+    }
+
+    private List<Line> validate(List<Line> lines, List<ImageImportResult> results) {
+        var tasks = lines.stream()
+            .map(line -> (Callable<String>) () -> {
+                imageUrlValidator.validate(line.request().url());
+                return line.request().url();
+            })
+            .toList();
+
+        var valid = new ArrayList<Line>(lines.size());
+        try {
+            // Not completed validations are cancelled once the timeout elapses
+            var futures = executorService.invokeAll(tasks, properties.chunkValidationTimeout().toNanos(), TimeUnit.NANOSECONDS);
+            for (int i = 0; i < lines.size(); i++) {
+                var line = lines.get(i);
+                try {
+                    futures.get(i).get();
+                    valid.add(line);
+                } catch (ExecutionException e) {
+                    // Only the image itself makes the line invalid, transient failures are reported as retryable
+                    results.add(e.getCause() instanceof InvalidImageException
+                        ? ImageImportResult.invalid(line.number(), line.request().url(), e.getCause().getMessage())
+                        : ImageImportResult.failed(line.number(), line.request().url(), e.getCause().getMessage()));
+                } catch (CancellationException e) {
+                    results.add(ImageImportResult.failed(line.number(), line.request().url(), "Validation timed out"));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating images", e);
+        }
+
+        return valid;
+    }
+
+    // The images are inserted by Hibernate batches, ids are allocated by images_id_seq(pooled-lo)
+    private int insert(List<Line> lines, List<ImageImportResult> results) {
+        var inserted = transactionTemplate.execute(tx -> {
+            var urls = lines.stream().map(it -> it.request().url()).toList();
+            var existingUrls = imageRepository.findExistingUrls(urls);
+            var images = new LinkedHashMap<Line, Image>(lines.size());
+            for (var line : lines) {
+                if (!existingUrls.contains(line.request().url())) {
+                    images.put(line, new Image(line.request().url(), line.request().duration()));
+                }
+            }
+
+            imageRepository.saveAll(images.values());
+            imageRepository.flush();
+            var createdImages = images.values().stream().collect(Collectors.toMap(Image::getId, Image::getName));
+            eventPublisher.publishEvent(new ImagesChangedEvent(createdImages, List.of()));
+            return images;
+        });
+
+        for (var line : lines) {
+            var image = inserted.get(line);
+            results.add(image == null
+                ? ImageImportResult.duplicate(line.number(), line.request().url())
+                : ImageImportResult.created(line.number(), image.getId(), line.request().url()));
+        }
+
+        return inserted.size();
+    }
+
+    private static void publish(List<ImageImportResult> results, Consumer<List<ImageImportResult>> chunkResults) {
+        if (!results.isEmpty()) {
+            results.sort(Comparator.comparingLong(ImageImportResult::line));
+            chunkResults.accept(results);
+            results.clear();
+        }
+    }
+
+    private record Line(long number, AddImageRequest request) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.ggruzdov.slideshow.service;
+
+import com.github.ggruzdov.slideshow.config.ProofOfPlayProperties;
+import com.github.ggruzdov.slideshow.exceptions.IngestionOverloadedException;
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point for proof of play events.
+ * In ASYNC mode events are put into a bounded buffer and a single background thread drains it
+ * by batches, so a request doesn't wait for the database at all. When the buffer is full
+ * a request waits up to enqueueTimeout and then is rejected, that is our backpressure.
+ * On shutdown the buffer is drained before the datasource is closed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProofOfPlayIngestionService {
+
+    private final SlideShowService slideShowService;
+    private final ProofOfPlayProperties properties;
+
+    private BlockingQueue<ProofOfPlayEvent> buffer;
+    private Thread flusher;
+    private volatile boolean accepting;
+
+    @PostConstruct
+    void start() {
+        if (properties.ingestion() != ProofOfPlayProperties.IngestionMode.ASYNC) {
+            return;
+        }
+
+        buffer = new ArrayBlockingQueue<>(properties.bufferCapacity());
+        accepting = true;
+        flusher = Thread.ofPlatform()
+            .name("proof-of-play-flusher")
+            .start(this::drainLoop);
+        log.info(
+            "Proof of play async ingestion started, capacity = {}, batchSize = {}, flushInterval = {}",
+            properties.bufferCapacity(), properties.batchSize(), properties.flushInterval()
+        );
+    }
+
+    public void submit(Integer slideShowId, Integer imageId) {
+        if (buffer == null) {
+            slideShowService.saveProofOfPlay(slideShowId, imageId);
+            return;
+        }
+
+        if (!accepting) {
+            throw new IngestionOverloadedException("Proof of play ingestion is shutting down");
+        }
+
+        var event = new ProofOfPlayEvent(slideShowId, imageId, Instant.now());
+        try {
+            if (!buffer.offer(event, properties.enqueueTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IngestionOverloadedException("Proof of play buffer is full, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestionOverloadedException("Interrupted while enqueuing proof of play");
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+
+        accepting = false;
+        log.info("Draining proof of play buffer, pending events = {}", buffer.size());
+        flusher.join(properties.shutdownTimeout());
+        if (flusher.isAlive()) {
+            log.error("Proof of play buffer wasn't drained in {}, lost events = {}", properties.shutdownTimeout(), buffer.size());
+            flusher.interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (accepting || !buffer.isEmpty()) {
+            try {
+                var batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Waits for the first event and then collects the batch either until it is full or the flush interval elapses
+    private List<ProofOfPlayEvent> nextBatch() throws InterruptedException {
+        var batch = new ArrayList<ProofOfPlayEvent>(properties.batchSize());
+        var first = buffer.poll(properties.flushInterval().toNanos(), TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return batch;
+        }
+
+        batch.add(first);
+        var deadline = System.nanoTime() + properties.flushInterval().toNanos();
+        while (batch.size() < properties.batchSize()) {
+            buffer.drainTo(batch, properties.batchSize() - batch.size());
+            var remaining = deadline - System.nanoTime();
+            if (batch.size() >= properties.batchSize() || remaining <= 0) {
+                break;
+            }
+
+            var next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+
+        return batch;
+    }
+
+    private void flush(List<ProofOfPlayEvent> batch) {
+        try {
+            slideShowService.saveProofOfPlays(batch);
+        } catch (Exception e) {
+            // Failing events are skipped by saveProofOfPlays, so that is unexpected. The events are already
+            // acknowledged, so there is nobody to report the error to
+            log.error("Failed to flush proof of play batch, lost events = {}", batch.size(), e);
+        }
+    }
+}
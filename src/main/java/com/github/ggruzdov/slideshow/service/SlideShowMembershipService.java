@@ -0,0 +1,157 @@
+package com.github.ggruzdov.slideshow.service;
+
+import com.github.ggruzdov.slideshow.component.PlaybackEngine;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent.Change;
+import com.github.ggruzdov.slideshow.repository.MembershipJdbcRepository;
+import com.github.ggruzdov.slideshow.repository.MembershipJdbcRepository.Membership;
+import com.github.ggruzdov.slideshow.repository.SlideShowRepository;
+import com.github.ggruzdov.slideshow.request.MembershipChangesRequest;
+import com.github.ggruzdov.slideshow.response.MembershipChangesResponse;
+import com.github.ggruzdov.slideshow.response.MembershipChangesResponse.Item;
+import com.github.ggruzdov.slideshow.response.MembershipChangesResponse.Operation;
+import com.github.ggruzdov.slideshow.response.MembershipChangesResponse.Status;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bulk appends and removals of slide show images in one transaction.
+ * The slide shows are locked once(in both concurrency modes), the current memberships of the requested images
+ * are read by a single query, then the changes are simulated in memory item by item, written by JDBC batches
+ * and the current images of all the changed slide shows are reconciled by a single update.
+ * In ATOMIC mode any failed item rolls the whole request back, in BEST_EFFORT mode failed items are skipped.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Timed(value = "slideshow.service", description = "SlideShowMembershipService operations")
+public class SlideShowMembershipService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final MembershipJdbcRepository membershipJdbcRepository;
+    private final SlideShowRepository slideShowRepository;
+    private final PlaybackEngine playbackEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public MembershipChangesResponse applyChanges(MembershipChangesRequest request) {
+        return transactionTemplate.execute(tx -> {
+            var response = apply(request);
+            if (!response.applied()) {
+                tx.setRollbackOnly();
+            }
+            return response;
+        });
+    }
+
+    private MembershipChangesResponse apply(MembershipChangesRequest request) {
+        var slideShowIds = new TreeSet<Integer>();
+        var imageIds = new HashSet<Integer>();
+        var appendedImageIds = new HashSet<Integer>();
+        for (var change : request.changes()) {
+            slideShowIds.add(change.slideShowId());
+            imageIds.addAll(change.remove());
+            imageIds.addAll(change.append());
+            appendedImageIds.addAll(change.append());
+        }
+
+        var existingSlideShowIds = membershipJdbcRepository.lockSlideShows(slideShowIds);
+        // The cursors are persisted before the current images are read
+        existingSlideShowIds.forEach(playbackEngine::detach);
+        var existingImageIds = appendedImageIds.isEmpty() ? Set.<Integer>of() : membershipJdbcRepository.lockImages(appendedImageIds);
+        var memberships = new HashMap<Integer, Map<Integer, Membership>>();
+        membershipJdbcRepository.findMemberships(existingSlideShowIds, imageIds)
+            .forEach(it -> memberships.computeIfAbsent(it.slideShowId(), id -> new HashMap<>()).put(it.imageId(), it));
+        var nextPositions = appendedImageIds.isEmpty() ? Map.<Integer, Integer>of() : membershipJdbcRepository.findNextPositions(existingSlideShowIds);
+
+        var items = new ArrayList<Item>();
+        var removed = new ArrayList<Membership>();
+        var appended = new ArrayList<Membership>();
+        // Changed slide shows with the positions of their removed current images, see MembershipJdbcRepository.reconcileCurrentImages
+        var removedCurrentPositions = new LinkedHashMap<Integer, Integer>();
+        for (var change : request.changes()) {
+            var slideShowId = change.slideShowId();
+            if (!existingSlideShowIds.contains(slideShowId)) {
+                change.remove().forEach(it -> items.add(new Item(slideShowId, it, Operation.REMOVE, Status.SLIDESHOW_NOT_FOUND)));
+                change.append().forEach(it -> items.add(new Item(slideShowId, it, Operation.APPEND, Status.SLIDESHOW_NOT_FOUND)));
+                continue;
+            }
+
+            var members = memberships.computeIfAbsent(slideShowId, id -> new HashMap<>());
+            for (var imageId : change.remove()) {
+                var membership = members.remove(imageId);
+                if (membership == null) {
+                    items.add(new Item(slideShowId, imageId, Operation.REMOVE, Status.NOT_MEMBER));
+                    continue;
+                }
+
+                // An image appended by the same request is just not inserted
+                if (!appended.remove(membership)) {
+                    removed.add(membership);
+                }
+                if (membership.current()) {
+                    removedCurrentPositions.put(slideShowId, membership.position());
+                } else {
+                    removedCurrentPositions.putIfAbsent(slideShowId, -1);
+                }
+                items.add(new Item(slideShowId, imageId, Operation.REMOVE, Status.REMOVED));
+            }
+
+            for (var imageId : change.append()) {
+                if (!existingImageIds.contains(imageId)) {
+                    items.add(new Item(slideShowId, imageId, Operation.APPEND, Status.IMAGE_NOT_FOUND));
+                    continue;
+                }
+
+                if (members.containsKey(imageId)) {
+                    items.add(new Item(slideShowId, imageId, Operation.APPEND, Status.ALREADY_MEMBER));
+                    continue;
+                }
+
+                var position = nextPositions.get(slideShowId);
+                nextPositions.put(slideShowId, position + 1);
+                var membership = new Membership(slideShowId, imageId, position, false);
+                members.put(imageId, membership);
+                appended.add(membership);
+                removedCurrentPositions.putIfAbsent(slideShowId, -1);
+                items.add(new Item(slideShowId, imageId, Operation.APPEND, Status.APPENDED));
+            }
+        }
+
+        var failed = items.stream().anyMatch(it -> it.status().isFailure());
+        if (failed && request.mode() == MembershipChangesRequest.Mode.ATOMIC) {
+            log.info("Membership changes are rolled back due to failed items, items = {}", items.size());
+            return new MembershipChangesResponse(false, items);
+        }
+
+        // Deletes go first, so an image removed and appended again doesn't violate the primary key
+        membershipJdbcRepository.deleteAll(removed, BATCH_SIZE);
+        membershipJdbcRepository.insertAll(appended, BATCH_SIZE);
+        if (!removedCurrentPositions.isEmpty()) {
+            membershipJdbcRepository.reconcileCurrentImages(removedCurrentPositions);
+            var changedSlideShowIds = List.copyOf(removedCurrentPositions.keySet());
+            var deletedSlideShows = slideShowRepository.deleteIfEmpty(changedSlideShowIds);
+            eventPublisher.publishEvent(new SlideShowChangedEvent(changedSlideShowIds, Change.MEMBERSHIP));
+            log.info(
+                "Membership changes applied, slide shows = {}, removed = {}, appended = {}, emptied slide shows = {}",
+                changedSlideShowIds.size(), removed.size(), appended.size(), deletedSlideShows
+            );
+        }
+
+        return new MembershipChangesResponse(true, items);
+    }
+}
@@ -1,194 +1,494 @@
 package com.github.ggruzdov.slideshow.service;
 
+import com.github.ggruzdov.slideshow.component.ImageNameIndex;
 import com.github.ggruzdov.slideshow.component.ImageUrlValidator;
+import com.github.ggruzdov.slideshow.component.OrderedSlideShowCache;
+import com.github.ggruzdov.slideshow.component.OutboxWriter;
+import com.github.ggruzdov.slideshow.component.PlaybackEngine;
+import com.github.ggruzdov.slideshow.component.SlideShowMutations;
+import com.github.ggruzdov.slideshow.config.ImageValidationProperties;
+import com.github.ggruzdov.slideshow.config.ProofOfPlayProperties;
+import com.github.ggruzdov.slideshow.event.ImagesChangedEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent.Change;
 import com.github.ggruzdov.slideshow.model.Image;
+import com.github.ggruzdov.slideshow.model.ImagePage;
 import com.github.ggruzdov.slideshow.model.ProofOfPlay;
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
 import com.github.ggruzdov.slideshow.model.SlideShow;
 import com.github.ggruzdov.slideshow.model.SlideShowImage;
+import com.github.ggruzdov.slideshow.repository.ImageDeletionJdbcRepository;
 import com.github.ggruzdov.slideshow.repository.ImageRepository;
 import com.github.ggruzdov.slideshow.repository.ProofOfPlayRepository;
+import com.github.ggruzdov.slideshow.repository.ProofOfPlayWriter;
 import com.github.ggruzdov.slideshow.repository.SlideShowImageRepository;
 import com.github.ggruzdov.slideshow.repository.SlideShowRepository;
 import com.github.ggruzdov.slideshow.request.AddImageRequest;
 import com.github.ggruzdov.slideshow.request.ImageSearchRequest;
+import com.github.ggruzdov.slideshow.request.OrderedImagesRequest;
+import com.github.ggruzdov.slideshow.response.ImageDetailsResponse;
+import com.github.ggruzdov.slideshow.response.OrderedImageDetailsResponse;
 import com.github.ggruzdov.slideshow.response.OrderedSlideShowDetailsResponse;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.ResourceAccessException;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@Timed(value = "slideshow.service", description = "SlideShowService operations")
 public class SlideShowService {
 
     private final ImageRepository imageRepository;
+    private final ImageDeletionJdbcRepository imageDeletionJdbcRepository;
     private final SlideShowRepository slideShowRepository;
     private final SlideShowImageRepository slideShowImageRepository;
     private final ProofOfPlayRepository proofOfPlayRepository;
+    private final ProofOfPlayWriter proofOfPlayWriter;
     private final ImageUrlValidator imageUrlValidator;
     private final ExecutorService executorService;
+    private final ImageValidationProperties imageValidationProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ProofOfPlayProperties proofOfPlayProperties;
+    private final PlaybackEngine playbackEngine;
+    private final SlideShowMutations slideShowMutations;
+    private final ImageNameIndex imageNameIndex;
+    private final AnalyticsService analyticsService;
+    private final OutboxWriter outboxWriter;
+    private final OrderedSlideShowCache orderedSlideShowCache;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public OrderedSlideShowDetailsResponse getOrderedSlideShow(Integer slideShowId) {
-        var orderedImages = imageRepository.findAllSortedByAdditionDateAsc(slideShowId);
-        return new OrderedSlideShowDetailsResponse(slideShowId, orderedImages);
+    public OrderedSlideShowDetailsResponse getOrderedSlideShow(Integer slideShowId, OrderedImagesRequest request) {
+        List<OrderedImageDetailsResponse> orderedImages;
+        Integer nextCursor = null;
+        if (request.isPaged()) {
+            // One more image is fetched to know whether there is the next page, like in searchImages
+            var after = Objects.requireNonNullElse(request.after(), -1);
+            orderedImages = imageRepository.findPageSortedByPosition(slideShowId, after, Limit.of(request.size() + 1));
+            if (orderedImages.size() > request.size()) {
+                orderedImages = orderedImages.subList(0, request.size());
+                nextCursor = orderedImages.getLast().position();
+            }
+        } else {
+            orderedImages = orderedSlideShowCache.get(slideShowId, () -> imageRepository.findAllSortedByPosition(slideShowId));
+        }
+
+        // In MEMORY playback mode is_current column may be behind the actual cursor till the next checkpoint,
+        // that is also why the cached images are not evicted when the current image is switched in that mode.
+        var currentImageId = playbackEngine.currentImageId(slideShowId);
+        if (currentImageId != null) {
+            orderedImages = orderedImages
+                .stream()
+                .map(it -> it.withCurrent(currentImageId.equals(it.id())))
+                .toList();
+        }
+
+        return new OrderedSlideShowDetailsResponse(slideShowId, orderedImages, nextCursor);
+    }
+
+    // Rows are handed over to the consumer as they are fetched, the transaction(and the connection)
+    // is held until the whole slideshow is consumed.
+    @Transactional(readOnly = true)
+    public void streamOrderedSlideShow(Integer slideShowId, Consumer<? super OrderedImageDetailsResponse> consumer) {
+        var currentImageId = playbackEngine.currentImageId(slideShowId);
+        try (var orderedImages = imageRepository.streamAllSortedByPosition(slideShowId)) {
+            orderedImages
+                .map(it -> currentImageId == null ? it : it.withCurrent(currentImageId.equals(it.id())))
+                .forEach(consumer);
+        }
+    }
+
+    public ImagePage searchImages(ImageSearchRequest request) {
+        var name = request.name().toLowerCase();
+        if (!request.isPaged()) {
+            return new ImagePage(imageRepository.findAllByNameAndIdGreaterThanOrderById(name, 0, Limit.unlimited()), null);
+        }
+
+        // One more image is fetched to know whether there is the next page
+        var size = request.pageSize();
+        var limit = Limit.of(size + 1);
+        if (request.mode() == ImageSearchRequest.Mode.EXACT) {
+            return page(imageRepository.findAllByNameAndIdGreaterThanOrderById(name, request.afterId(), limit), size);
+        }
+
+        if (!imageNameIndex.isReady()) {
+            return page(request.mode() == ImageSearchRequest.Mode.PREFIX
+                ? imageRepository.findAllByNameStartingWithAndIdGreaterThanOrderById(name, request.afterId(), limit)
+                : imageRepository.findAllByNameContainingAndIdGreaterThanOrderById(name, request.afterId(), limit), size);
+        }
+
+        var ids = request.mode() == ImageSearchRequest.Mode.PREFIX
+            ? imageNameIndex.searchByPrefix(name, request.afterId(), size + 1)
+            : imageNameIndex.searchBySubstring(name, request.afterId(), size + 1);
+        var hasNext = ids.size() > size;
+        var pageIds = hasNext ? ids.subList(0, size) : ids;
+        // The cursor is the last id found by the index, images deleted meanwhile are missing in the page but don't end it
+        return new ImagePage(
+            pageIds.isEmpty() ? List.of() : imageRepository.findAllByIdInOrderById(pageIds),
+            hasNext ? pageIds.getLast() : null
+        );
     }
 
-    public List<Image> searchImages(ImageSearchRequest request) {
-        return imageRepository.getAllByName(request.name().toLowerCase());
+    // Streams all the matching images ignoring pagination, see streamOrderedSlideShow
+    @Transactional(readOnly = true)
+    public void streamImages(ImageSearchRequest request, Consumer<? super ImageDetailsResponse> consumer) {
+        var name = request.name().toLowerCase();
+        var images = switch (request.mode()) {
+            case EXACT -> imageRepository.streamAllByName(name);
+            case PREFIX -> imageRepository.streamAllByNameStartingWith(name);
+            case SUBSTRING -> imageRepository.streamAllByNameContaining(name);
+        };
+        try (images) {
+            images.forEach(consumer);
+        }
     }
 
     @Transactional
     public Image createImage(AddImageRequest request) {
         imageUrlValidator.validate(request.url());
-        var image = new Image(request.url(), request.duration());
+        var image = imageRepository.save(new Image(request.url(), request.duration()));
+        eventPublisher.publishEvent(new ImagesChangedEvent(Map.of(image.getId(), image.getName()), List.of()));
 
-        return imageRepository.save(image);
+        return image;
     }
 
-    @Transactional
+    // Images are validated before the transaction is started, so a connection is held only for the batch inserts
     public SlideShow create(List<AddImageRequest> request) {
-        var images = new ArrayList<Image>(request.size());
+        validateAll(request.stream().map(AddImageRequest::url).toList());
 
-        // For now, we create a SlideShow when all its images are valid, otherwise reject request.
-        var completableFutures = new CompletableFuture[request.size()];
-        for (int i = 0; i < request.size(); i++) {
-            var currImg = request.get(i);
-            completableFutures[i] = CompletableFuture.runAsync(
-                () -> imageUrlValidator.validate(currImg.url()), executorService
-            ).orTimeout(30, TimeUnit.SECONDS);
+        return transactionTemplate.execute(tx -> {
+            var slideShow = slideShowRepository.save(new SlideShow());
 
             // We want to preserve images order in which they were passed
-            images.add(new Image(currImg.url(), currImg.duration()));
-        }
-
-        var slideShow = new SlideShow();
-        CompletableFuture.allOf(completableFutures)
-            .thenRun(() -> {
-                slideShowRepository.save(slideShow);
-                imageRepository.saveAll(images);
-                var slideShowImages = images
-                    .stream()
-                    .map(it -> new SlideShowImage(new SlideShowImage.PK(slideShow.getId(), it.getId())))
-                    .toList();
-                slideShowImages.getFirst().setCurrent(true);
-                slideShowImageRepository.saveAll(slideShowImages);
-            })
-            .join();
+            var images = imageRepository.saveAll(request.stream().map(it -> new Image(it.url(), it.duration())).toList());
+            var slideShowImages = new ArrayList<SlideShowImage>(images.size());
+            for (int i = 0; i < images.size(); i++) {
+                var pk = new SlideShowImage.PK(slideShow.getId(), images.get(i).getId());
+                slideShowImages.add(new SlideShowImage(pk, i));
+            }
+            slideShowImages.getFirst().setCurrent(true);
+            slideShowImageRepository.saveAll(slideShowImages);
 
-        return slideShow;
+            var createdImages = images.stream().collect(Collectors.toMap(Image::getId, Image::getName));
+            eventPublisher.publishEvent(new ImagesChangedEvent(createdImages, List.of()));
+            eventPublisher.publishEvent(SlideShowChangedEvent.of(slideShow.getId(), Change.MEMBERSHIP));
+            return slideShow;
+        });
     }
 
     @Transactional
     public void appendImage(Integer slideShowId, Integer imageId) {
+        // The lock serializes appends(in both concurrency modes), so two images can't get the same position
+        slideShowRepository.findByIdForIncrement(slideShowId).orElseThrow(
+            () -> new EntityNotFoundException("Slide show with id " + slideShowId + " not found")
+        );
+        playbackEngine.detach(slideShowId);
         var pk = new SlideShowImage.PK(slideShowId, imageId);
-        slideShowImageRepository.save(new SlideShowImage(pk));
+        slideShowImageRepository.save(new SlideShowImage(pk, slideShowImageRepository.getNextPosition(slideShowId)));
+        eventPublisher.publishEvent(SlideShowChangedEvent.of(slideShowId, Change.MEMBERSHIP));
     }
 
-    @Transactional
     public void removeImage(Integer slideShowId, Integer imageId) {
-        var ssiPk = new SlideShowImage.PK(slideShowId, imageId);
-        var slideShowImage = slideShowImageRepository.findByIdForUpdate(ssiPk);
-        if (slideShowImage == null) {
-            log.info("SlideShowImage {} not found", ssiPk);
-            return;
-        }
+        slideShowMutations.execute("removeImage", () -> {
+            var optimistic = slideShowMutations.isOptimistic();
+            if (!optimistic) {
+                // Serializes the removal with proofs of play and appends of the slide show
+                slideShowRepository.findByIdForIncrement(slideShowId);
+            }
+
+            playbackEngine.detach(slideShowId);
+            var ssiPk = new SlideShowImage.PK(slideShowId, imageId);
+            var slideShowImage = optimistic
+                ? slideShowImageRepository.findById(ssiPk).orElse(null)
+                : slideShowImageRepository.findByIdForUpdate(ssiPk);
+            if (slideShowImage == null) {
+                log.info("SlideShowImage {} not found", ssiPk);
+                return;
+            }
+
+            if (slideShowImage.isCurrent()) {
+                var nextSlideShowImage = getNexSlideShowImageOrElseFirst(slideShowImage);
+                // Here we see that there is only one image in the SlideShow so we can remove it as well
+                if (nextSlideShowImage.equals(slideShowImage)) {
+                    slideShowImageRepository.deleteById(ssiPk);
+                    slideShowImageRepository.flush();
+                    slideShowRepository.deleteById(slideShowId);
+                    eventPublisher.publishEvent(SlideShowChangedEvent.of(slideShowId, Change.DELETED));
+                    return;
+                }
 
-        if (slideShowImage.isCurrent()) {
-            var nextSlideShowImage = getNexSlideShowImageOrElseFirst(slideShowId, imageId);
-            // Here we see that there is only one image in the SlideShow so we can remove it as well
-            if (nextSlideShowImage.equals(slideShowImage)) {
-                slideShowImageRepository.deleteById(ssiPk);
-                slideShowImageRepository.flush();
-                slideShowRepository.deleteById(slideShowId);
-            } else {
                 nextSlideShowImage.setCurrent(true);
             }
-        } else {
+
+            if (optimistic) {
+                // Concurrent proofs of play bump the version as well, so they are retried against the new membership
+                slideShowRepository.findByIdForOptimisticIncrement(slideShowId);
+            }
             slideShowImageRepository.deleteById(ssiPk);
-        }
+            eventPublisher.publishEvent(SlideShowChangedEvent.of(slideShowId, Change.MEMBERSHIP));
+        });
     }
 
     // Apparently, this method will be under high load and everything
     // except saving the very event should be processed asynchronously.
-    // However, that is a big topic and a good one to discuss.
-    @Transactional
+    // See ProofOfPlayIngestionService for the buffered(write-behind) mode
+    // and PlaybackEngine for switching current images in memory.
+    // In OPTIMISTIC concurrency mode nothing is locked, every switch bumps the slide show version instead,
+    // so concurrent switches of the same slide show conflict and are retried(see SlideShowMutations).
+    // SlideShowImage versions are not enough here, a switch may leave the rows as they were(e.g. a mismatched
+    // play of the image right before the current one), then there is no update to check.
     public void saveProofOfPlay(Integer slideShowId, Integer imageId) {
-        slideShowRepository.findByIdForUpdate(slideShowId).orElseThrow(
-            () -> new EntityNotFoundException("Slide show with id " + slideShowId + " not found")
-        );
-
-        var playedSlideShowImage = slideShowImageRepository.findById(new SlideShowImage.PK(slideShowId, imageId)).orElse(null);
-        if (playedSlideShowImage == null) {
-            log.warn("ImageId = {} doesn't belong to SlideShow with id {}", imageId, slideShowId);
+        if (playbackEngine.isEnabled()) {
+            // Only an insert, so there is nothing to conflict with, and the cursor must not be advanced twice
+            if (playbackEngine.advance(slideShowId, imageId)) {
+                transactionTemplate.executeWithoutResult(tx -> saveAcceptedProofOfPlay(slideShowId, imageId));
+            }
             return;
         }
 
-        if (!playedSlideShowImage.isCurrent()) {
-            var currentSlideShowImage = slideShowImageRepository.findByPkSlideShowIdAndIsCurrentTrue(slideShowId);
-            log.warn(
-                "Active image mismatch detected, activeImage id = {}, played imageId = {}",
-                currentSlideShowImage.getPk().getImageId(), imageId
-            );
-            currentSlideShowImage.setCurrent(false);
-        }
+        slideShowMutations.execute("saveProofOfPlay", () -> {
+            var slideShow = slideShowMutations.isOptimistic()
+                ? slideShowRepository.findByIdForOptimisticIncrement(slideShowId)
+                : slideShowRepository.findByIdForUpdate(slideShowId);
+            slideShow.orElseThrow(() -> new EntityNotFoundException("Slide show with id " + slideShowId + " not found"));
 
-        var nextSlideShowImage = getNexSlideShowImageOrElseFirst(slideShowId, imageId);
+            if (switchCurrentImage(slideShowId, imageId)) {
+                saveAcceptedProofOfPlay(slideShowId, imageId);
+            }
+        });
+    }
 
-        log.info("SlideShow {} next imageId is: {}", slideShowId, nextSlideShowImage.getPk().getImageId());
-        playedSlideShowImage.setCurrent(false);
-        nextSlideShowImage.setCurrent(true);
-        proofOfPlayRepository.save(new ProofOfPlay(slideShowId, imageId));
+    // Batch counterpart of saveProofOfPlay. Events are applied in the order they were received
+    // and invalid ones are skipped with a warning since the caller can't be notified anymore.
+    // The slide shows are locked in both concurrency modes, but the batch is still retried on conflicts
+    // with optimistic removals and deletions. A batch failed for any other reason is retried by halves,
+    // so only the failing events are lost.
+    public void saveProofOfPlays(List<ProofOfPlayEvent> events) {
+        if (playbackEngine.isEnabled()) {
+            // The cursors are advanced once, only the writes are retried
+            var accepted = advanceInMemory(events);
+            if (accepted.size() < events.size()) {
+                log.info("Skipped proofs of play, size = {}", events.size() - accepted.size());
+            }
+            saveIsolatingFailures(accepted, part -> transactionTemplate.executeWithoutResult(tx -> saveAcceptedProofOfPlays(part, part)));
+            return;
+        }
+
+        saveIsolatingFailures(events, part -> slideShowMutations.execute(
+            "saveProofOfPlays", () -> saveAcceptedProofOfPlays(part, switchCurrentImages(part))
+        ));
     }
 
     @Transactional
     public void deleteImage(Integer id) {
-        var image = imageRepository.findByIdForUpdate(id);
-        if (image == null) {
-            log.info("Image {} is already deleted", id);
+        deleteImages(List.of(id));
+    }
+
+    // A constant number of set-based statements whatever the number of slide shows the images belong to.
+    // The affected slide shows are locked(and their versions bumped) in both concurrency modes,
+    // then the deleted current images are replaced by the next remaining ones in a single update.
+    @Transactional
+    public void deleteImages(Collection<Integer> ids) {
+        var slideShowIds = new LinkedHashSet<>(imageDeletionJdbcRepository.lockSlideShows(ids));
+        var imageIds = imageDeletionJdbcRepository.lockImages(ids);
+        if (imageIds.isEmpty()) {
+            log.info("Images {} are already deleted", ids);
             return;
         }
 
-        var slideShowImages = slideShowImageRepository.findAllByPkImageId(id);
-        slideShowImages.forEach(ssi -> {
-            if (ssi.isCurrent()) {
-                var nextSlideShowImage = getNexSlideShowImageOrElseFirst(ssi.getPk().getSlideShowId(), image.getId());
-                if (!nextSlideShowImage.getImageId().equals(id)) {
-                    nextSlideShowImage.setCurrent(true);
-                }
-            }
-        });
-
-        if (!slideShowImages.isEmpty()) {
-            slideShowImageRepository.deleteAllByPkImageId(id);
-            var slideShowIds = slideShowImages.stream().map(SlideShowImage::getSlideShowId).toList();
-            slideShowRepository.deleteIfEmpty(slideShowIds);
+        slideShowIds.forEach(playbackEngine::detach);
+        imageDeletionJdbcRepository.reassignCurrentImages(imageIds);
+        // Includes slide shows the images were appended to after the slide shows were locked
+        slideShowIds.addAll(imageDeletionJdbcRepository.deleteSlideShowsImages(imageIds));
+        if (!slideShowIds.isEmpty()) {
+            var deletedSlideShows = slideShowRepository.deleteIfEmpty(slideShowIds);
+            log.info("Deleted images {} from slide shows = {}, emptied slide shows = {}", imageIds, slideShowIds.size(), deletedSlideShows);
+            eventPublisher.publishEvent(new SlideShowChangedEvent(slideShowIds, Change.MEMBERSHIP));
         }
 
-        imageRepository.delete(image);
+        imageRepository.deleteAllByIdInBatch(imageIds);
+        eventPublisher.publishEvent(ImagesChangedEvent.deleted(imageIds));
     }
 
     // It is assumed, that we remove SlideShow itself and its connections to images.
     // However, we do not remove images since they have to remain even if they don't belong to another SlideShows.
     @Transactional
     public void deleteSlideShow(Integer id) {
+        playbackEngine.detach(id);
         slideShowImageRepository.deleteAllByPkSlideShowId(id);
         slideShowRepository.deleteById(id);
+        eventPublisher.publishEvent(SlideShowChangedEvent.of(id, Change.DELETED));
+    }
+
+    // Validates the URLs in parallel. As soon as one of them fails(or the timeout elapses)
+    // the outstanding validations are cancelled, i.e. their threads are interrupted.
+    private void validateAll(List<String> urls) {
+        var completionService = new ExecutorCompletionService<Void>(executorService);
+        var futures = new ArrayList<Future<Void>>(urls.size());
+        urls.forEach(url -> futures.add(completionService.submit(() -> {
+            imageUrlValidator.validate(url);
+            return null;
+        })));
+
+        var deadline = System.nanoTime() + imageValidationProperties.timeout().toNanos();
+        try {
+            for (int i = 0; i < urls.size(); i++) {
+                var completed = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (completed == null) {
+                    throw new ResourceAccessException("Image validation timed out after " + imageValidationProperties.timeout());
+                }
+                completed.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating images", e);
+        } finally {
+            // No-op for the completed ones
+            futures.forEach(it -> it.cancel(true));
+        }
+    }
+
+    private void saveAcceptedProofOfPlays(List<ProofOfPlayEvent> events, List<ProofOfPlayEvent> accepted) {
+        proofOfPlayWriter.insertAll(accepted, proofOfPlayProperties.batchSize());
+        analyticsService.record(accepted);
+        outboxWriter.proofsOfPlay(accepted);
+        if (!accepted.isEmpty()) {
+            var slideShowIds = accepted.stream().map(ProofOfPlayEvent::slideShowId).collect(Collectors.toSet());
+            eventPublisher.publishEvent(new SlideShowChangedEvent(slideShowIds, Change.CURRENT_IMAGE));
+        }
+        log.info("Saved proofs of play batch, size = {}, skipped = {}", accepted.size(), events.size() - accepted.size());
+    }
+
+    // Halves keep the order of the events, a single failing event is logged and skipped
+    private void saveIsolatingFailures(List<ProofOfPlayEvent> events, Consumer<List<ProofOfPlayEvent>> save) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        try {
+            save.accept(events);
+        } catch (RuntimeException e) {
+            if (events.size() == 1) {
+                log.error("Failed to save proof of play, it is skipped, event = {}", events.getFirst(), e);
+                return;
+            }
+
+            log.warn("Failed to save proofs of play batch, size = {}, retrying by halves: {}", events.size(), e.toString());
+            var middle = events.size() / 2;
+            saveIsolatingFailures(events.subList(0, middle), save);
+            saveIsolatingFailures(events.subList(middle, events.size()), save);
+        }
+    }
+
+    private static ImagePage page(List<Image> images, int size) {
+        return images.size() > size
+            ? new ImagePage(images.subList(0, size), images.get(size - 1).getId())
+            : new ImagePage(images, null);
+    }
+
+    private void saveAcceptedProofOfPlay(Integer slideShowId, Integer imageId) {
+        var playedAt = Instant.now();
+        proofOfPlayRepository.save(new ProofOfPlay(slideShowId, imageId, playedAt));
+        var events = List.of(new ProofOfPlayEvent(slideShowId, imageId, playedAt));
+        analyticsService.record(events);
+        outboxWriter.proofsOfPlay(events);
+        eventPublisher.publishEvent(SlideShowChangedEvent.of(slideShowId, Change.CURRENT_IMAGE));
+    }
+
+    // Locks all the slide shows of the batch at once and switches their current images in the database
+    private List<ProofOfPlayEvent> switchCurrentImages(List<ProofOfPlayEvent> events) {
+        var slideShowIds = events.stream().map(ProofOfPlayEvent::slideShowId).collect(Collectors.toSet());
+        var lockedSlideShowIds = slideShowRepository.findAllByIdForUpdate(slideShowIds)
+            .stream()
+            .map(SlideShow::getId)
+            .collect(Collectors.toSet());
+
+        var accepted = new ArrayList<ProofOfPlayEvent>(events.size());
+        for (var event : events) {
+            if (!lockedSlideShowIds.contains(event.slideShowId())) {
+                log.warn("Slide show with id {} not found, proof of play is skipped", event.slideShowId());
+                continue;
+            }
+
+            if (switchCurrentImage(event.slideShowId(), event.imageId())) {
+                accepted.add(event);
+            }
+        }
+
+        return accepted;
+    }
+
+    private List<ProofOfPlayEvent> advanceInMemory(List<ProofOfPlayEvent> events) {
+        var accepted = new ArrayList<ProofOfPlayEvent>(events.size());
+        for (var event : events) {
+            try {
+                if (playbackEngine.advance(event.slideShowId(), event.imageId())) {
+                    accepted.add(event);
+                }
+            } catch (EntityNotFoundException e) {
+                log.warn("Slide show with id {} not found, proof of play is skipped", event.slideShowId());
+            }
+        }
+
+        return accepted;
+    }
+
+    // Makes the image next to the played one current, the slide show must be locked by the caller
+    private boolean switchCurrentImage(Integer slideShowId, Integer imageId) {
+        var playedSlideShowImage = slideShowImageRepository.findById(new SlideShowImage.PK(slideShowId, imageId)).orElse(null);
+        if (playedSlideShowImage == null) {
+            log.warn("ImageId = {} doesn't belong to SlideShow with id {}", imageId, slideShowId);
+            return false;
+        }
+
+        if (!playedSlideShowImage.isCurrent()) {
+            var currentSlideShowImage = slideShowImageRepository.findByPkSlideShowIdAndIsCurrentTrue(slideShowId);
+            log.warn(
+                "Active image mismatch detected, activeImage id = {}, played imageId = {}",
+                currentSlideShowImage.getPk().getImageId(), imageId
+            );
+            currentSlideShowImage.setCurrent(false);
+        }
+
+        var nextSlideShowImage = getNexSlideShowImageOrElseFirst(playedSlideShowImage);
+
+        log.info("SlideShow {} next imageId is: {}", slideShowId, nextSlideShowImage.getPk().getImageId());
+        playedSlideShowImage.setCurrent(false);
+        nextSlideShowImage.setCurrent(true);
+        return true;
     }
 
-    private SlideShowImage getNexSlideShowImageOrElseFirst(Integer slideShowId, Integer imageId) {
+    private SlideShowImage getNexSlideShowImageOrElseFirst(SlideShowImage slideShowImage) {
+        var slideShowId = slideShowImage.getSlideShowId();
         return slideShowImageRepository
-            .getNext(slideShowId, imageId)
+            .findFirstByPkSlideShowIdAndPositionGreaterThanOrderByPosition(slideShowId, slideShowImage.getPosition())
             .orElseGet(() -> {
                 log.info("SlideShow {} reached its end, starting new circle", slideShowId);
-                return slideShowImageRepository.findFirstByPkSlideShowIdOrderByCreatedAt(slideShowId);
+                return slideShowImageRepository.findFirstByPkSlideShowIdOrderByPosition(slideShowId);
             });
     }
 }
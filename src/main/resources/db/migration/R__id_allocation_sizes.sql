@@ -0,0 +1,5 @@
+-- Hibernate allocation sizes of ids(spring.flyway.placeholders), Hibernate takes them from the sequences on startup.
+-- Re-applied whenever the values change. Don't lower them while instances with greater ones are running,
+-- those may still use ids of the allocated blocks.
+ALTER SEQUENCE slide_shows_id_seq INCREMENT BY ${slide-shows-id-allocation-size};
+ALTER SEQUENCE proofs_of_play_id_seq INCREMENT BY ${proofs-of-play-id-allocation-size};
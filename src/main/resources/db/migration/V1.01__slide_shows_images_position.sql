@@ -0,0 +1,15 @@
+-- Explicit order of images in a slide show, replaces ordering by created_at.
+-- Positions are unique and increasing within a slide show, gaps are allowed(left by removed images).
+ALTER TABLE slide_shows_images ADD COLUMN position INTEGER;
+
+UPDATE slide_shows_images ssi
+SET position = ordered.position
+FROM (
+    SELECT slide_show_id, image_id, ROW_NUMBER() OVER (PARTITION BY slide_show_id ORDER BY created_at, image_id) - 1 AS position
+    FROM slide_shows_images
+) ordered
+WHERE ssi.slide_show_id = ordered.slide_show_id AND ssi.image_id = ordered.image_id;
+
+ALTER TABLE slide_shows_images ALTER COLUMN position SET NOT NULL;
+
+CREATE UNIQUE INDEX slide_show_position_uidx ON slide_shows_images (slide_show_id, position);
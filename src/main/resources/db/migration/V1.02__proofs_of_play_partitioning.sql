@@ -0,0 +1,49 @@
+-- proofs_of_play becomes partitioned by created_at(daily partitions, see ProofOfPlayPartitionManager).
+-- The existing table is not copied, it is attached as the partition holding all the rows written before today ends.
+
+ALTER TABLE proofs_of_play RENAME TO proofs_of_play_history;
+-- Replaced by the (id, created_at) primary key of the partitioned table on ATTACH
+ALTER TABLE proofs_of_play_history DROP CONSTRAINT pk_proofs_of_play;
+
+UPDATE proofs_of_play_history SET created_at = CLOCK_TIMESTAMP() WHERE created_at IS NULL;
+ALTER TABLE proofs_of_play_history ALTER COLUMN created_at SET NOT NULL;
+
+-- The partition key must be a part of the primary key
+CREATE TABLE proofs_of_play
+(
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    image_id      INTEGER                                 NOT NULL,
+    slide_show_id INTEGER                                 NOT NULL,
+    created_at    timestamptz                             NOT NULL DEFAULT CLOCK_TIMESTAMP(),
+    CONSTRAINT pk_proofs_of_play PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Partitions can't have their own identity, the new one continues the old sequence
+DO
+$$
+    BEGIN
+        EXECUTE format(
+            'ALTER TABLE proofs_of_play ALTER COLUMN id RESTART WITH %s',
+            (SELECT COALESCE(MAX(id), 0) + 1 FROM proofs_of_play_history)
+        );
+        ALTER TABLE proofs_of_play_history ALTER COLUMN id DROP IDENTITY;
+
+        -- The check constraint lets ATTACH skip the validation scan
+        EXECUTE format(
+            'ALTER TABLE proofs_of_play_history ADD CONSTRAINT proofs_of_play_history_range CHECK (created_at < %L)',
+            date_trunc('day', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' + INTERVAL '1 day'
+        );
+        EXECUTE format(
+            'ALTER TABLE proofs_of_play ATTACH PARTITION proofs_of_play_history FOR VALUES FROM (MINVALUE) TO (%L)',
+            date_trunc('day', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' + INTERVAL '1 day'
+        );
+    END
+$$;
+
+ALTER TABLE proofs_of_play_history DROP CONSTRAINT proofs_of_play_history_range;
+
+-- Rows not matching any daily partition, e.g. if partitions weren't created in time
+CREATE TABLE proofs_of_play_default PARTITION OF proofs_of_play DEFAULT;
+
+CREATE INDEX proofs_of_play_slide_show_idx ON proofs_of_play (slide_show_id, created_at);
+CREATE INDEX proofs_of_play_image_idx ON proofs_of_play (image_id, created_at);
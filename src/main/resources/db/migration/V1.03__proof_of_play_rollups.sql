@@ -0,0 +1,13 @@
+-- Play counts pre-aggregated by minute, hour and day buckets(UTC), see PlayRollupJdbcRepository.
+-- Rows are incremented within the same transaction as proofs_of_play inserts.
+CREATE TABLE proof_of_play_rollups
+(
+    granularity   VARCHAR(6)  NOT NULL,
+    slide_show_id INTEGER     NOT NULL,
+    bucket        timestamptz NOT NULL,
+    image_id      INTEGER     NOT NULL,
+    plays         BIGINT      NOT NULL,
+    CONSTRAINT pk_proof_of_play_rollups PRIMARY KEY (granularity, slide_show_id, bucket, image_id)
+);
+
+CREATE INDEX proof_of_play_rollups_image_idx ON proof_of_play_rollups (granularity, image_id, bucket);
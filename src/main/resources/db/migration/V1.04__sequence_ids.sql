@@ -0,0 +1,25 @@
+-- Identity ids can't be batched by Hibernate(every insert returns its id), so slide_shows and proofs_of_play
+-- get sequences continuing the identity ones, existing ids are kept.
+-- Sequence increments are Hibernate allocation sizes(pooled-lo), they are set by R__id_allocation_sizes.sql.
+-- Rows inserted without an id(JDBC and COPY writers of proofs of play) take a whole allocation block by the column default,
+-- so their ids are unique and increasing but sparse.
+DO
+$$
+    DECLARE
+        tbl     TEXT;
+        next_id BIGINT;
+    BEGIN
+        FOREACH tbl IN ARRAY ARRAY ['slide_shows', 'proofs_of_play']
+            LOOP
+                EXECUTE format(
+                        'SELECT GREATEST('
+                            '(SELECT CASE WHEN is_called THEN last_value + 1 ELSE last_value END FROM %s), '
+                            '(SELECT COALESCE(MAX(id), 0) + 1 FROM %I))',
+                        pg_get_serial_sequence(tbl, 'id'), tbl
+                        ) INTO next_id;
+                EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY', tbl);
+                EXECUTE format('CREATE SEQUENCE %I START WITH %s OWNED BY %I.id', tbl || '_id_seq', next_id, tbl);
+                EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', tbl, tbl || '_id_seq');
+            END LOOP;
+    END
+$$;
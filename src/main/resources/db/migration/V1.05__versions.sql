@@ -0,0 +1,5 @@
+-- Optimistic locking versions, see slideshow.concurrency.mode.
+-- slide_shows.version is bumped on membership changes(and current image switches in optimistic mode),
+-- slide_shows_images.version on every update of the row.
+ALTER TABLE slide_shows ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE slide_shows_images ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
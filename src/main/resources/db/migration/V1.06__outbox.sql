@@ -0,0 +1,13 @@
+-- Transactional outbox, see OutboxWriter and OutboxRelay.
+-- Rows are inserted within the same transaction as the changes they describe and deleted once they are relayed,
+-- the payload is JSON kept as text, since it is never queried and is relayed as is.
+CREATE TABLE outbox_events
+(
+    id         BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    type       VARCHAR(32) NOT NULL,
+    payload    TEXT        NOT NULL,
+    created_at timestamptz NOT NULL DEFAULT now()
+);
+
+-- A queue table, vacuumed way more often than the default 20% of dead rows
+ALTER TABLE outbox_events SET (autovacuum_vacuum_scale_factor = 0.01, autovacuum_vacuum_threshold = 1000);
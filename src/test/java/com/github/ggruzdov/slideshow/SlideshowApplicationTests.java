@@ -1,32 +1,116 @@
 package com.github.ggruzdov.slideshow;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.ggruzdov.slideshow.component.HostConcurrencyLimiter;
+import com.github.ggruzdov.slideshow.component.ImageUrlValidator;
+import com.github.ggruzdov.slideshow.component.OrderedSlideShowCache;
+import com.github.ggruzdov.slideshow.component.PlaybackEngine;
+import com.github.ggruzdov.slideshow.component.ProofOfPlayPartitionManager;
+import com.github.ggruzdov.slideshow.component.SlideShowVersions;
+import com.github.ggruzdov.slideshow.config.AnalyticsProperties;
+import com.github.ggruzdov.slideshow.config.ImageImportProperties;
+import com.github.ggruzdov.slideshow.config.ImageValidationProperties;
+import com.github.ggruzdov.slideshow.config.OutboxProperties;
+import com.github.ggruzdov.slideshow.event.CachesResetEvent;
+import com.github.ggruzdov.slideshow.event.ChangeNotification;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent;
+import com.github.ggruzdov.slideshow.event.SlideShowChangedEvent.Change;
+import com.github.ggruzdov.slideshow.model.Granularity;
 import com.github.ggruzdov.slideshow.model.Image;
+import com.github.ggruzdov.slideshow.model.ProofOfPlay;
+import com.github.ggruzdov.slideshow.model.ProofOfPlayEvent;
 import com.github.ggruzdov.slideshow.model.SlideShow;
 import com.github.ggruzdov.slideshow.model.SlideShowImage;
+import com.github.ggruzdov.slideshow.repository.ImageRepository;
+import com.github.ggruzdov.slideshow.repository.PlayRollupJdbcRepository;
+import com.github.ggruzdov.slideshow.repository.ProofOfPlayCopyWriter;
+import com.github.ggruzdov.slideshow.request.DeleteImagesRequest;
+import com.github.ggruzdov.slideshow.request.ImageSearchRequest;
+import com.github.ggruzdov.slideshow.request.MembershipChangesRequest;
 import com.github.ggruzdov.slideshow.response.AddImageResponse;
 import com.github.ggruzdov.slideshow.response.AddSlideShowResponse;
 import com.github.ggruzdov.slideshow.response.ImageDetailsResponse;
+import com.github.ggruzdov.slideshow.response.ImageImportResult;
+import com.github.ggruzdov.slideshow.response.ImageImportResult.Status;
+import com.github.ggruzdov.slideshow.response.MembershipChangesResponse;
+import com.github.ggruzdov.slideshow.response.OrderedImageDetailsResponse;
 import com.github.ggruzdov.slideshow.response.OrderedSlideShowDetailsResponse;
+import com.github.ggruzdov.slideshow.response.PlayStatsResponse;
+import com.github.ggruzdov.slideshow.response.SlideShowUpdateResponse;
+import com.github.ggruzdov.slideshow.service.AnalyticsService;
+import com.github.ggruzdov.slideshow.service.ImageImportService;
+import com.github.ggruzdov.slideshow.service.ProofOfPlayIngestionService;
+import com.github.ggruzdov.slideshow.service.SlideShowService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
+import static com.github.ggruzdov.slideshow.response.MembershipChangesResponse.Status.ALREADY_MEMBER;
+import static com.github.ggruzdov.slideshow.response.MembershipChangesResponse.Status.APPENDED;
+import static com.github.ggruzdov.slideshow.response.MembershipChangesResponse.Status.NOT_MEMBER;
+import static com.github.ggruzdov.slideshow.response.MembershipChangesResponse.Status.REMOVED;
+import static com.github.ggruzdov.slideshow.response.MembershipChangesResponse.Status.SLIDESHOW_NOT_FOUND;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+// Metrics export(Prometheus) is disabled in tests by default
+@AutoConfigureObservability(tracing = false)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class SlideshowApplicationTests {
 
@@ -50,6 +134,51 @@ class SlideshowApplicationTests {
     @Autowired
     private TransactionTemplate transactionTemplate;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxProperties outboxProperties;
+
+    @Autowired
+    private OrderedSlideShowCache orderedSlideShowCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private SlideShowVersions slideShowVersions;
+
+    @Autowired
+    private ImageUrlValidator imageUrlValidator;
+
+    @Autowired
+    private ImageImportService imageImportService;
+
+    @Autowired
+    private ImageImportProperties imageImportProperties;
+
+    @Autowired
+    private ProofOfPlayPartitionManager proofOfPlayPartitionManager;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    @Autowired
+    private PlayRollupJdbcRepository playRollupJdbcRepository;
+
     @BeforeAll
     static void setTimeZone() {
         TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
@@ -63,6 +192,7 @@ class SlideshowApplicationTests {
             entityManager.createNativeQuery("DELETE FROM slide_shows").executeUpdate();
             entityManager.createNativeQuery("DELETE FROM images").executeUpdate();
             entityManager.createNativeQuery("DELETE FROM proofs_of_play").executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM proof_of_play_rollups").executeUpdate();
             return null;
         });
     }
@@ -94,6 +224,189 @@ class SlideshowApplicationTests {
         assertEquals("mountain-lake", image.getName());
     }
 
+    @Test
+    void addImageValidationResultIsCached() {
+        // Given(unique URLs, since the results are cached for the application lifetime)
+        var version = System.nanoTime();
+        var tree = TREE + "?v=" + version;
+        var sameTree = tree.replace("localhost", "LOCALHOST");
+        var missing = BASE_IMAGE_URL + "missing-" + version + ".jpg";
+        var hitsBefore = getValidationCacheHits();
+
+        // When
+        addImage(tree);
+        addImage(sameTree);
+        var firstAttempt = addInvalidImage(missing);
+        var secondAttempt = addInvalidImage(missing);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, firstAttempt);
+        assertEquals(HttpStatus.BAD_REQUEST, secondAttempt);
+        assertEquals(hitsBefore + 2, getValidationCacheHits());
+    }
+
+    @Test
+    void completeValidationOfCancelledCaller() throws Exception {
+        // Given(the first caller of the URL is interrupted, e.g. cancelled after another image was invalid)
+        var url = TREE + "?cancelled=" + System.nanoTime();
+        var interrupted = Executors.newVirtualThreadPerTaskExecutor().submit(() -> {
+            Thread.currentThread().interrupt();
+            imageUrlValidator.validate(url);
+            return null;
+        });
+        var error = assertThrows(ExecutionException.class, interrupted::get);
+        assertInstanceOf(ResourceAccessException.class, error.getCause());
+        var hitsBefore = getValidationCacheHits();
+
+        // When
+        imageUrlValidator.validate(url);
+
+        // Then(the validation wasn't failed by the interruption and its result is shared)
+        assertEquals(hitsBefore + 1, getValidationCacheHits());
+    }
+
+    @Test
+    void limitConcurrentValidationsPerHost() throws Exception {
+        // Given(both permits of the host are taken)
+        var properties = new ImageValidationProperties(
+            ImageValidationProperties.Mode.RANGE, true, Duration.ofHours(1), Duration.ofMinutes(1), 10, 10, 2, 1, Duration.ofMillis(100), Duration.ofSeconds(1)
+        );
+        var registry = new SimpleMeterRegistry();
+        var limiter = new HostConcurrencyLimiter(properties, registry);
+        var started = new CountDownLatch(2);
+        var release = new CompletableFuture<Void>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 2; i++) {
+                executor.submit(() -> limiter.execute(TREE, () -> {
+                    started.countDown();
+                    release.join();
+                    return null;
+                }));
+            }
+            started.await();
+
+            // When
+            var rejected = assertThrows(ResourceAccessException.class, () -> limiter.execute(BEACH, () -> "rejected"));
+            var active = registry.get("image.validation.host.active").tag("host", "localhost:9000").gauge().value();
+            var otherHost = limiter.execute("http://127.0.0.1:9000/images/beach.jpg", () -> "other host");
+            release.complete(null);
+
+            // Then
+            assertTrue(rejected.getMessage().contains("localhost:9000"));
+            assertEquals(2, active);
+            assertEquals("other host", otherHost);
+        }
+        // Only the first host is tagged
+        assertEquals(HostConcurrencyLimiter.OTHER_HOST, limiter.hostTag("http://127.0.0.1:9000/images/beach.jpg"));
+        assertNull(registry.find("image.validation.host.active").tag("host", "127.0.0.1:9000").gauge());
+        assertEquals("permitted", limiter.execute(BEACH, () -> "permitted"));
+        // The gauges outlive the semaphore dropped once its requests are done
+        assertEquals(0, registry.get("image.validation.host.active").tag("host", "localhost:9000").gauge().value());
+    }
+
+    @Test
+    void addImageWithUnsupportedContent() {
+        // Given(not an image, e.g. directory listing)
+        var notImage = BASE_IMAGE_URL + "?v=" + System.nanoTime();
+
+        // When
+        var result = addInvalidImage(notImage);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, result);
+    }
+
+    @Test
+    void importImages() throws Exception {
+        // Given
+        persistImage(BEACH);
+        var tree = TREE + "?v=" + System.nanoTime();
+        var input = String.join("\n",
+            "{\"url\": \"%s\", \"duration\": 10}".formatted(tree),
+            "{\"url\": \"%s\", \"duration\": 10}".formatted(tree),
+            "{\"url\": ",
+            "{\"url\": \"%s\", \"duration\": 10}".formatted(BASE_IMAGE_URL + "missing-" + System.nanoTime() + ".jpg"),
+            "{\"url\": \"%s\", \"duration\": 10}".formatted(BEACH),
+            "{\"url\": \"%s\"}".formatted(BIRDS),
+            // Nothing listens on the port
+            "{\"url\": \"http://localhost:1/images/tree.jpg\", \"duration\": 10}"
+        );
+
+        // When
+        var response = restClient
+            .post()
+            .uri("http://localhost:%d/images/import".formatted(port))
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(input)
+            .retrieve()
+            .body(String.class);
+
+        // Then
+        assertNotNull(response);
+        var results = new ArrayList<ImageImportResult>();
+        for (var line : response.lines().toList()) {
+            results.add(objectMapper.readValue(line, ImageImportResult.class));
+        }
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), results.stream().map(ImageImportResult::line).toList());
+        assertEquals(
+            List.of(Status.CREATED, Status.DUPLICATE, Status.INVALID, Status.INVALID, Status.DUPLICATE, Status.INVALID, Status.FAILED),
+            results.stream().map(ImageImportResult::status).toList()
+        );
+        assertEquals(tree, getImage(results.getFirst().id()).getUrl());
+    }
+
+    @Test
+    void importInvalidImagesByChunks() throws Exception {
+        // Given(no line is valid, so no chunk of valid lines is ever filled)
+        var chunkSize = imageImportProperties.chunkSize();
+        var input = "{\"url\": \n".repeat(2 * chunkSize + 1);
+        var chunks = new ArrayList<Integer>();
+
+        // When
+        imageImportService.importImages(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), results -> chunks.add(results.size()));
+
+        // Then
+        assertEquals(List.of(chunkSize, chunkSize, 1), chunks);
+    }
+
+    @Test
+    void prometheusMetrics() {
+        // Given
+        var imageList = """
+            [
+              {
+                "url": "%s",
+                "duration": 10
+              }
+            ]
+            """.formatted(TREE);
+        restClient
+            .post()
+            .uri("http://localhost:%d/slideshow".formatted(port))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(imageList)
+            .retrieve()
+            .toBodilessEntity();
+
+        // When
+        var result = restClient
+            .get()
+            .uri("http://localhost:%d/actuator/prometheus".formatted(port))
+            .retrieve()
+            .body(String.class);
+
+        // Then
+        assertNotNull(result);
+        assertTrue(result.contains("slideshow_service_seconds_bucket{class=\"com.github.ggruzdov.slideshow.service.SlideShowService\",exception=\"none\",method=\"create\""));
+        assertTrue(result.contains("image_validation_seconds_count{host=\"localhost:9000\",outcome=\"valid\"}"));
+        assertTrue(result.contains("image_validation_host_waiting{host=\"localhost:9000\"}"));
+        // Validations run on virtual threads, so they are timed by image.validation only
+        assertFalse(result.contains("executor_seconds_count{name=\"image-validation\""));
+        assertTrue(result.contains("hikaricp_connections_pending{"));
+        assertTrue(result.contains("cache_gets_total{cache=\"ordered-slideshows\""));
+        assertTrue(result.contains("spring_data_repository_invocations_seconds_bucket{"));
+    }
+
     @Test
     void addSlideShow() {
         // Given
@@ -153,6 +466,79 @@ class SlideshowApplicationTests {
         assertEquals("tree", getImage(lastImageId).getName());
     }
 
+    @Test
+    void appendImageAfterRemoval() {
+        // Given(the first image is removed, so the count of the images is the position of the last one)
+        var slideShow = persistSlideShow();
+        var tree = persistImage(TREE);
+        var first = getSortedSlideShowImages(slideShow.getId()).getFirst();
+        restClient
+            .post()
+            .uri("http://localhost:%d/slideshow/%d/remove/%d".formatted(port, slideShow.getId(), first.getImageId()))
+            .retrieve()
+            .toEntity(Void.class);
+
+        // When
+        restClient
+            .post()
+            .uri("http://localhost:%d/slideshow/%d/append/%d".formatted(port, slideShow.getId(), tree.getId()))
+            .retrieve()
+            .toEntity(Void.class);
+
+        // Then(the image gets the max position + 1 and goes last)
+        var slideShowImages = getSortedSlideShowImages(slideShow.getId());
+        assertEquals(List.of(1, 2, 3), slideShowImages.stream().map(SlideShowImage::getPosition).toList());
+        var ordered = restClient
+            .get()
+            .uri("http://localhost:%d/slideshow/%d/ordered".formatted(port, slideShow.getId()))
+            .retrieve()
+            .body(OrderedSlideShowDetailsResponse.class);
+        assertNotNull(ordered);
+        assertEquals(List.of(BIRDS, BUTTERFLY, TREE), ordered.images().stream().map(OrderedImageDetailsResponse::url).toList());
+    }
+
+    @Test
+    void changeMemberships() {
+        // Given(the current image is moved to the end)
+        var tree = persistImage(TREE).getId();
+        var slideShow = persistSlideShow();
+        var images = getSortedSlideShowImages(slideShow.getId()).stream().map(SlideShowImage::getImageId).toList();
+        var beach = images.get(0);
+        var birds = images.get(1);
+        var bestEffort = new MembershipChangesRequest(MembershipChangesRequest.Mode.BEST_EFFORT, List.of(
+            new MembershipChangesRequest.Change(slideShow.getId(), List.of(tree, beach, birds), List.of(beach, tree)),
+            new MembershipChangesRequest.Change(Integer.MAX_VALUE, List.of(tree), null)
+        ));
+        var atomic = new MembershipChangesRequest(MembershipChangesRequest.Mode.ATOMIC, List.of(
+            new MembershipChangesRequest.Change(slideShow.getId(), List.of(Integer.MAX_VALUE), List.of(birds))
+        ));
+
+        // When
+        var applied = restClient
+            .post()
+            .uri("http://localhost:%d/slideshows/membership".formatted(port))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(bestEffort)
+            .retrieve()
+            .body(MembershipChangesResponse.class);
+        var rolledBack = restClient
+            .post()
+            .uri("http://localhost:%d/slideshows/membership".formatted(port))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(atomic)
+            .exchange((request, response) -> response.getStatusCode());
+
+        // Then
+        assertNotNull(applied);
+        assertTrue(applied.applied());
+        var statuses = applied.items().stream().map(MembershipChangesResponse.Item::status).toList();
+        assertEquals(List.of(REMOVED, NOT_MEMBER, APPENDED, APPENDED, ALREADY_MEMBER, SLIDESHOW_NOT_FOUND), statuses);
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, rolledBack);
+        var names = getSortedSlideShowImages(slideShow.getId()).stream().map(it -> getImage(it.getImageId()).getName()).toList();
+        assertEquals(List.of("birds", "butterfly", "tree", "beach"), names);
+        assertEquals(birds, getCurrentSlideShowImage(slideShow.getId()).getImageId());
+    }
+
     @Test
     void removeImage() {
         // Given
@@ -197,6 +583,198 @@ class SlideshowApplicationTests {
         assertEquals(TREE, result.images().getLast().url());
     }
 
+    @Test
+    void addSlideShowWithInvalidImage() {
+        // Given
+        var imageList =
+        """
+          [
+            {
+              "url": "%s",
+              "duration": 10
+            },
+            {
+              "url": "%s",
+              "duration": 15
+            }
+          ]
+        """.formatted(BEACH, BASE_IMAGE_URL + "missing-" + System.nanoTime() + ".jpg");
+
+        // When
+        var result = restClient
+            .post()
+            .uri("http://localhost:%d/slideshow".formatted(port))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(imageList)
+            .exchange((request, response) -> response.getStatusCode());
+
+        // Then(nothing is persisted)
+        assertEquals(HttpStatus.BAD_REQUEST, result);
+        var images = entityManager.createQuery("select count(i) from Image i", Long.class).getSingleResult();
+        assertEquals(0, images);
+    }
+
+    @Test
+    void getOrderedSlideShowAfterProofOfPlay() {
+        // Given(the first call caches the slideshow)
+        var slideShow = persistSlideShow();
+        var orderedUri = "http://localhost:%d/slideshow/%d/ordered".formatted(port, slideShow.getId());
+        var before = restClient.get().uri(orderedUri).retrieve().body(OrderedSlideShowDetailsResponse.class);
+        assertNotNull(before);
+        var currentImage = before.images().stream().filter(OrderedImageDetailsResponse::isCurrent).findFirst().orElseThrow();
+
+        // When
+        restClient
+            .post()
+            .uri("http://localhost:%d/slideshow/%d/proof-of-play/%d".formatted(port, slideShow.getId(), currentImage.id()))
+            .retrieve()
+            .toEntity(Void.class);
+
+        // Then
+        var after = restClient.get().uri(orderedUri).retrieve().body(OrderedSlideShowDetailsResponse.class);
+        assertNotNull(after);
+        assertTrue(after.images().stream().anyMatch(it -> it.isCurrent() && BIRDS.equals(it.url())));
+    }
+
+    @Test
+    void skipCachingOrderedSlideShowChangedWhileLoading() {
+        // Given(the slideshow is changed while it is being loaded, so the loaded images are stale)
+        var slideShowId = persistSlideShow().getId();
+        var loads = new AtomicInteger();
+        var stale = List.<OrderedImageDetailsResponse>of();
+        orderedSlideShowCache.get(slideShowId, () -> {
+            loads.incrementAndGet();
+            eventPublisher.publishEvent(new SlideShowChangedEvent(List.of(slideShowId), Change.MEMBERSHIP));
+            return stale;
+        });
+
+        // When
+        var images = orderedSlideShowCache.get(slideShowId, () -> {
+            loads.incrementAndGet();
+            return imageRepository.findAllSortedByPosition(slideShowId);
+        });
+        var cached = orderedSlideShowCache.get(slideShowId, () -> {
+            loads.incrementAndGet();
+            return stale;
+        });
+
+        // Then
+        assertEquals(2, loads.get());
+        assertEquals(3, images.size());
+        assertEquals(images, cached);
+    }
+
+    @Test
+    void slideShowVersionsNeverGoBackWhenForgotten() {
+        // Given
+        var slideShowId = persistSlideShow().getId();
+        eventPublisher.publishEvent(new SlideShowChangedEvent(List.of(slideShowId), Change.MEMBERSHIP));
+        var changed = slideShowVersions.version(slideShowId);
+
+        // When(the slideshow is deleted and then too many slideshows are tracked)
+        eventPublisher.publishEvent(new SlideShowChangedEvent(List.of(slideShowId), Change.DELETED));
+        var deleted = slideShowVersions.version(slideShowId);
+        var otherIds = IntStream.rangeClosed(1, SlideShowVersions.MAX_TRACKED + 1).map(it -> -it).boxed().toList();
+        eventPublisher.publishEvent(new SlideShowChangedEvent(otherIds, Change.MEMBERSHIP));
+        var firstChanged = slideShowVersions.version(otherIds.getFirst());
+        var otherChanged = slideShowVersions.version(otherIds.getLast());
+        eventPublisher.publishEvent(new SlideShowChangedEvent(List.of(otherIds.getLast()), Change.MEMBERSHIP));
+
+        // Then
+        assertTrue(deleted > changed);
+        assertTrue(slideShowVersions.version(slideShowId) >= deleted);
+        assertTrue(slideShowVersions.version(otherIds.getFirst()) >= firstChanged);
+        assertTrue(slideShowVersions.version(otherIds.getLast()) > otherChanged);
+
+        // Clean up(other tests expect the tracked versions to be below the capacity)
+        eventPublisher.publishEvent(new CachesResetEvent());
+    }
+
+    @Test
+    void deletingSlideShowKeepsOtherSlideShowsVersions() {
+        // Given(the other slideshow is cached and its ETag is issued)
+        var slideShowId = persistSlideShow().getId();
+        var treeId = persistImage(TREE).getId();
+        var otherId = persistSlideShow(List.of(treeId), treeId).getId();
+        var otherUri = "http://localhost:%d/slideshow/%d/ordered".formatted(port, otherId);
+        var eTag = restClient.get().uri(otherUri).retrieve().toBodilessEntity().getHeaders().getETag();
+        assertNotNull(eTag);
+
+        // When
+        restClient.delete().uri("http://localhost:%d/slideshow/%d".formatted(port, slideShowId)).retrieve().toBodilessEntity();
+        var notModified = restClient.get().uri(otherUri).ifNoneMatch(eTag).retrieve().toBodilessEntity();
+        var loads = new AtomicInteger();
+        orderedSlideShowCache.get(otherId, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(eTag, notModified.getHeaders().getETag());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void applyChangesOfOtherInstance() throws Exception {
+        // Given(the slideshow is cached and its ETag is issued)
+        var slideShow = persistSlideShow();
+        var orderedUri = "http://localhost:%d/slideshow/%d/ordered".formatted(port, slideShow.getId());
+        var eTag = restClient.get().uri(orderedUri).retrieve().toBodilessEntity().getHeaders().getETag();
+        assertNotNull(eTag);
+        var image = persistImage(BASE_IMAGE_URL + "remote-" + System.nanoTime() + ".jpg");
+
+        // When(another instance appends a new image and notifies about it)
+        jdbcTemplate.update(
+            "insert into slide_shows_images (slide_show_id, image_id, position) values (?, ?, 3)",
+            slideShow.getId(), image.getId()
+        );
+        notifyAsOtherInstance(new ChangeNotification("other", ChangeNotification.Type.IMAGES_CREATED, List.of(image.getId())));
+        notifyAsOtherInstance(new ChangeNotification("other", ChangeNotification.Type.MEMBERSHIP, List.of(slideShow.getId())));
+
+        // Then(the notifications are applied asynchronously)
+        var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        ResponseEntity<OrderedSlideShowDetailsResponse> modified;
+        do {
+            Thread.sleep(50);
+            modified = restClient.get().uri(orderedUri).ifNoneMatch(eTag).retrieve().toEntity(OrderedSlideShowDetailsResponse.class);
+        } while (modified.getStatusCode() == HttpStatus.NOT_MODIFIED && System.nanoTime() < deadline);
+        assertEquals(HttpStatus.OK, modified.getStatusCode());
+        assertNotNull(modified.getBody());
+        assertEquals(4, modified.getBody().images().size());
+        var found = restClient
+            .get()
+            .uri("http://localhost:%d/images/search?name=%s".formatted(port, image.getName()))
+            .retrieve()
+            .body(new ParameterizedTypeReference<List<ImageDetailsResponse>>() {});
+        assertNotNull(found);
+        assertEquals(List.of(image.getId()), found.stream().map(ImageDetailsResponse::id).toList());
+    }
+
+    @Test
+    void getOrderedSlideShowNotModified() {
+        // Given
+        var slideShow = persistSlideShow();
+        var orderedUri = "http://localhost:%d/slideshow/%d/ordered".formatted(port, slideShow.getId());
+        var eTag = restClient.get().uri(orderedUri).retrieve().toBodilessEntity().getHeaders().getETag();
+        assertNotNull(eTag);
+
+        // When
+        var notModified = restClient.get().uri(orderedUri).ifNoneMatch(eTag).retrieve().toBodilessEntity();
+        restClient
+            .post()
+            .uri("http://localhost:%d/slideshow/%d/append/%d".formatted(port, slideShow.getId(), persistImage(TREE).getId()))
+            .retrieve()
+            .toEntity(Void.class);
+        var modified = restClient.get().uri(orderedUri).ifNoneMatch(eTag).retrieve().toEntity(OrderedSlideShowDetailsResponse.class);
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(HttpStatus.OK, modified.getStatusCode());
+        assertNotNull(modified.getBody());
+        assertEquals(4, modified.getBody().images().size());
+    }
+
     @Test
     void imageSearch() {
         // Given
@@ -216,6 +794,144 @@ class SlideshowApplicationTests {
         assertEquals(mountainLake.getUrl(), result.getFirst().url());
     }
 
+    @Test
+    void imageSearchByPagesAndStream() {
+        // Given(images with the same name)
+        var beaches = List.of(persistImage(BEACH), persistImage(BASE_IMAGE_URL + "beach.png"), persistImage(BASE_IMAGE_URL + "beach.webp"));
+        var searchUri = "http://localhost:%d/images/search".formatted(port);
+
+        // When
+        var firstPage = restClient
+            .get()
+            .uri(searchUri + "?name=beach&size=2")
+            .retrieve()
+            .toEntity(new ParameterizedTypeReference<List<ImageDetailsResponse>>() {});
+        var cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        var lastPage = restClient
+            .get()
+            .uri(searchUri + "?name=beach&size=2&after=" + cursor)
+            .retrieve()
+            .toEntity(new ParameterizedTypeReference<List<ImageDetailsResponse>>() {});
+        var stream = restClient.get().uri(searchUri + "/stream?name=bea&mode=PREFIX").retrieve().body(String.class);
+
+        // Then
+        assertNotNull(firstPage.getBody());
+        assertEquals(List.of(beaches.get(0).getId(), beaches.get(1).getId()), firstPage.getBody().stream().map(ImageDetailsResponse::id).toList());
+        assertEquals(beaches.get(1).getId().toString(), cursor);
+        assertNotNull(lastPage.getBody());
+        assertEquals(List.of(beaches.get(2).getId()), lastPage.getBody().stream().map(ImageDetailsResponse::id).toList());
+        assertNull(lastPage.getHeaders().getFirst("X-Next-Cursor"));
+        assertNotNull(stream);
+        assertEquals(3, stream.lines().count());
+    }
+
+    @Test
+    void exactImageSearchIsNotPagedByDefault() {
+        // Given(more images with the same name than the default page size)
+        var beachIds = IntStream.range(0, ImageSearchRequest.DEFAULT_SIZE + 1).mapToObj(i -> persistImage(BEACH + "?v=" + i).getId()).toList();
+
+        // When
+        var result = restClient
+            .get()
+            .uri("http://localhost:%d/images/search?name=beach".formatted(port))
+            .retrieve()
+            .toEntity(new ParameterizedTypeReference<List<ImageDetailsResponse>>() {});
+
+        // Then
+        assertNotNull(result.getBody());
+        assertEquals(beachIds, result.getBody().stream().map(ImageDetailsResponse::id).toList());
+        assertNull(result.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    void imageSearchKeepsCursorWhenIndexedImageIsMissing() {
+        // Given(the second image is removed bypassing the search index)
+        var firstId = addImage(MOUNTAIN_LAKE + "?v=1");
+        var secondId = addImage(MOUNTAIN_LAKE + "?v=2");
+        var thirdId = addImage(MOUNTAIN_LAKE + "?v=3");
+        transactionTemplate.execute(tx -> entityManager.createNativeQuery("DELETE FROM images WHERE id = " + secondId).executeUpdate());
+        var searchUri = "http://localhost:%d/images/search?name=mountain&mode=PREFIX&size=2&after=".formatted(port);
+
+        // When
+        var firstPage = restClient
+            .get()
+            .uri(searchUri + (firstId - 1))
+            .retrieve()
+            .toEntity(new ParameterizedTypeReference<List<ImageDetailsResponse>>() {});
+        var cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        var lastPage = restClient
+            .get()
+            .uri(searchUri + cursor)
+            .retrieve()
+            .toEntity(new ParameterizedTypeReference<List<ImageDetailsResponse>>() {});
+
+        // Then
+        assertNotNull(firstPage.getBody());
+        assertEquals(List.of(firstId), firstPage.getBody().stream().map(ImageDetailsResponse::id).toList());
+        assertEquals(secondId.toString(), cursor);
+        assertNotNull(lastPage.getBody());
+        assertEquals(List.of(thirdId), lastPage.getBody().stream().map(ImageDetailsResponse::id).toList());
+        assertNull(lastPage.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    void imageSearchByPrefixAndSubstring() {
+        // Given(images have to be added via API to get into the search index)
+        var mountainLakeId = addImage(MOUNTAIN_LAKE);
+        addImage(TREE);
+
+        // When
+        var byPrefix = restClient
+            .get()
+            .uri("http://localhost:%d/images/search?name=Mount&mode=PREFIX".formatted(port))
+            .retrieve()
+            .body(new ParameterizedTypeReference<List<ImageDetailsResponse>>() {});
+        var bySubstring = restClient
+            .get()
+            .uri("http://localhost:%d/images/search?name=lak&mode=SUBSTRING".formatted(port))
+            .retrieve()
+            .body(new ParameterizedTypeReference<List<ImageDetailsResponse>>() {});
+
+        // Then
+        assertNotNull(byPrefix);
+        assertEquals(1, byPrefix.size());
+        assertEquals(mountainLakeId, byPrefix.getFirst().id());
+        assertNotNull(bySubstring);
+        assertEquals(1, bySubstring.size());
+        assertEquals(mountainLakeId, bySubstring.getFirst().id());
+    }
+
+    @Test
+    void getOrderedSlideShowByPagesAndStream() {
+        // Given
+        var slideShow = persistSlideShow();
+        var orderedUri = "http://localhost:%d/slideshow/%d/ordered".formatted(port, slideShow.getId());
+
+        // When
+        var firstPage = restClient.get().uri(orderedUri + "?size=2").retrieve().toEntity(OrderedSlideShowDetailsResponse.class);
+        var cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        var lastPage = restClient.get().uri(orderedUri + "?size=2&after=" + cursor).retrieve().toEntity(OrderedSlideShowDetailsResponse.class);
+        var fullPage = restClient.get().uri(orderedUri + "?size=3").retrieve().toEntity(OrderedSlideShowDetailsResponse.class);
+        var stream = restClient.get().uri(orderedUri + "/stream").retrieve().toEntity(String.class);
+
+        // Then
+        assertNotNull(firstPage.getBody());
+        assertEquals(List.of(BEACH, BIRDS), firstPage.getBody().images().stream().map(OrderedImageDetailsResponse::url).toList());
+        assertNotNull(lastPage.getBody());
+        assertEquals(List.of(BUTTERFLY), lastPage.getBody().images().stream().map(OrderedImageDetailsResponse::url).toList());
+        assertNull(lastPage.getHeaders().getFirst("X-Next-Cursor"));
+        // The last page is full, but there is nothing after it
+        assertNotNull(fullPage.getBody());
+        assertEquals(3, fullPage.getBody().images().size());
+        assertNull(fullPage.getHeaders().getFirst("X-Next-Cursor"));
+        assertEquals(MediaType.APPLICATION_NDJSON, stream.getHeaders().getContentType());
+        assertNotNull(stream.getBody());
+        var lines = stream.getBody().lines().toList();
+        assertEquals(3, lines.size());
+        assertTrue(lines.getFirst().startsWith("{") && lines.getFirst().contains(BEACH));
+        assertTrue(lines.getLast().contains(BUTTERFLY));
+    }
+
     @Test
     void saveProofOfPlay() {
         // Given
@@ -234,6 +950,323 @@ class SlideshowApplicationTests {
         assertEquals("birds", getImage(result.getImageId()).getName());
     }
 
+    @Test
+    void saveConcurrentProofsOfPlay() throws Exception {
+        // Given
+        var slideShow = persistSlideShow();
+        var imageIds = getSortedSlideShowImages(slideShow.getId()).stream().map(SlideShowImage::getImageId).toList();
+        var plays = 30;
+
+        // When(the same slide show is switched by all the requests at once)
+        var statuses = new ArrayList<Future<HttpStatusCode>>(plays);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < plays; i++) {
+                var imageId = imageIds.get(i % imageIds.size());
+                statuses.add(executor.submit(() -> restClient
+                    .post()
+                    .uri("http://localhost:%d/slideshow/%d/proof-of-play/%d".formatted(port, slideShow.getId(), imageId))
+                    .retrieve()
+                    .toBodilessEntity()
+                    .getStatusCode()
+                ));
+            }
+        }
+
+        // Then
+        for (var status : statuses) {
+            assertTrue(status.get().is2xxSuccessful());
+        }
+        assertNotNull(getCurrentSlideShowImage(slideShow.getId()));
+        var savedPlays = jdbcTemplate.queryForObject("select count(*) from proofs_of_play where slide_show_id = ?", Long.class, slideShow.getId());
+        assertEquals(plays, savedPlays);
+    }
+
+    @Test
+    void pushSlideShowUpdates() throws Exception {
+        // Given
+        var slideShow = persistSlideShow();
+        var images = getSortedSlideShowImages(slideShow.getId());
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:%d/slideshow/%d/events".formatted(port, slideShow.getId()))).build();
+        try (var client = HttpClient.newHttpClient()) {
+            var response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+            var events = response.body()
+                .filter(it -> it.startsWith("data:"))
+                .map(it -> readSlideShowUpdate(it.substring("data:".length())))
+                .iterator();
+            var initial = events.next();
+
+            // When
+            restClient
+                .post()
+                .uri("http://localhost:%d/slideshow/%d/proof-of-play/%d".formatted(port, slideShow.getId(), images.getFirst().getImageId()))
+                .retrieve()
+                .toBodilessEntity();
+            var switched = events.next();
+            restClient
+                .delete()
+                .uri("http://localhost:%d/slideshow/%d".formatted(port, slideShow.getId()))
+                .retrieve()
+                .toBodilessEntity();
+            var deleted = events.next();
+
+            // Then
+            assertEquals(MediaType.TEXT_EVENT_STREAM_VALUE, response.headers().firstValue("Content-Type").orElseThrow());
+            assertEquals(new SlideShowUpdateResponse(slideShow.getId(), Change.CURRENT_IMAGE, images.getFirst().getImageId()), initial);
+            assertEquals(new SlideShowUpdateResponse(slideShow.getId(), Change.CURRENT_IMAGE, images.get(1).getImageId()), switched);
+            assertEquals(new SlideShowUpdateResponse(slideShow.getId(), Change.DELETED, null), deleted);
+            // The stream is completed after the deletion
+            assertFalse(events.hasNext());
+        }
+
+        var notFound = restClient
+            .get()
+            .uri("http://localhost:%d/slideshow/%d/events".formatted(port, slideShow.getId()))
+            .exchange((req, res) -> res.getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, notFound);
+    }
+
+    @Test
+    void relayOutboxEvents() throws Exception {
+        // Given
+        var slideShow = persistSlideShow();
+        var currentSlideShowImage = getCurrentSlideShowImage(slideShow.getId());
+
+        // When(the events are written along with the changes and relayed in the background)
+        restClient
+            .post()
+            .uri("http://localhost:%d/slideshow/%d/proof-of-play/%d".formatted(port, slideShow.getId(), currentSlideShowImage.getImageId()))
+            .retrieve()
+            .toBodilessEntity();
+        restClient
+            .delete()
+            .uri("http://localhost:%d/slideshow/%d".formatted(port, slideShow.getId()))
+            .retrieve()
+            .toBodilessEntity();
+
+        // Then
+        var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        List<JsonNode> relayed;
+        do {
+            Thread.sleep(50);
+            relayed = Files.readAllLines(outboxProperties.file())
+                .stream()
+                .map(this::readJson)
+                .filter(it -> it.at("/payload/slideShowId").asInt() == slideShow.getId())
+                .toList();
+        } while (relayed.size() < 2 && System.nanoTime() < deadline);
+        assertEquals(2, relayed.size());
+        assertEquals("PROOF_OF_PLAY", relayed.getFirst().get("type").asText());
+        assertEquals(currentSlideShowImage.getImageId(), relayed.getFirst().at("/payload/imageId").asInt());
+        assertEquals("SLIDESHOW_CHANGED", relayed.getLast().get("type").asText());
+        assertEquals("DELETED", relayed.getLast().at("/payload/change").asText());
+        assertTrue(relayed.getFirst().get("id").asLong() < relayed.getLast().get("id").asLong());
+        var pending = jdbcTemplate.queryForObject("select count(*) from outbox_events where id in (?, ?)", Long.class,
+            relayed.getFirst().get("id").asLong(), relayed.getLast().get("id").asLong());
+        assertEquals(0, pending);
+    }
+
+    @Test
+    void skipOutboxForChangesOfOtherInstance() throws Exception {
+        // Given
+        var slideShow = persistSlideShow();
+        var orderedUri = "http://localhost:%d/slideshow/%d/ordered".formatted(port, slideShow.getId());
+        var eTag = restClient.get().uri(orderedUri).retrieve().toBodilessEntity().getHeaders().getETag();
+
+        // When(the change is in the outbox of the other instance already)
+        notifyAsOtherInstance(new ChangeNotification("other", ChangeNotification.Type.DELETED, List.of(slideShow.getId())));
+
+        // Then(the notification is applied, i.e. the ETag is changed, but nothing is written to the outbox)
+        var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        String newETag;
+        do {
+            Thread.sleep(50);
+            newETag = restClient.get().uri(orderedUri).retrieve().toBodilessEntity().getHeaders().getETag();
+        } while (eTag.equals(newETag) && System.nanoTime() < deadline);
+        assertNotEquals(eTag, newETag);
+        Thread.sleep(500);
+        var pending = jdbcTemplate.queryForObject(
+            "select count(*) from outbox_events where payload like ?", Long.class, "%\"slideShowId\":" + slideShow.getId() + ",%"
+        );
+        assertEquals(0, pending);
+        var relayed = Files.exists(outboxProperties.file())
+            ? Files.readAllLines(outboxProperties.file()).stream().map(this::readJson).filter(it -> it.at("/payload/slideShowId").asInt() == slideShow.getId()).count()
+            : 0;
+        assertEquals(0, relayed);
+    }
+
+    @Test
+    void saveProofOfPlayIntoDailyPartition() {
+        // Given(partitions are created on startup)
+        var slideShow = persistSlideShow();
+        var currentSlideShowImage = getCurrentSlideShowImage(slideShow.getId());
+        var lastPartition = "proofs_of_play_" + LocalDate.now(ZoneOffset.UTC).plusDays(7).format(DateTimeFormatter.BASIC_ISO_DATE);
+
+        // When
+        restClient
+            .post()
+            .uri("http://localhost:%d/slideshow/%d/proof-of-play/%d".formatted(port, slideShow.getId(), currentSlideShowImage.getImageId()))
+            .retrieve()
+            .toEntity(Void.class);
+
+        // Then
+        var partition = entityManager
+            .createNativeQuery("select tableoid::regclass::text from proofs_of_play where slide_show_id = :slideShowId", String.class)
+            .setParameter("slideShowId", slideShow.getId())
+            .getSingleResult();
+        assertNotEquals("proofs_of_play_default", partition);
+        var lastPartitions = entityManager
+            .createNativeQuery("select count(*) from pg_class where relname = :name", Long.class)
+            .setParameter("name", lastPartition)
+            .getSingleResult();
+        assertEquals(1L, lastPartitions);
+    }
+
+    @Test
+    void moveProofsOfPlayFromDefaultPartition() {
+        // Given(the last partition is missing, so a proof of play of its day falls into the default partition)
+        var day = LocalDate.now(ZoneOffset.UTC).plusDays(7);
+        var lastPartition = "proofs_of_play_" + day.format(DateTimeFormatter.BASIC_ISO_DATE);
+        jdbcTemplate.execute("drop table " + lastPartition);
+        jdbcTemplate.update(
+            "insert into proofs_of_play (slide_show_id, image_id, created_at) values (-1, -1, ?)",
+            day.atTime(12, 0).atOffset(ZoneOffset.UTC)
+        );
+
+        // When
+        proofOfPlayPartitionManager.maintain();
+
+        // Then
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from " + lastPartition, Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from proofs_of_play_default", Integer.class));
+    }
+
+    @Test
+    void insertSlideShowsAndProofsOfPlayByBatches() {
+        // Given
+        var statements = new AtomicInteger();
+        var batches = new AtomicInteger();
+        var listener = new SessionEventListener() {
+            @Override
+            public void jdbcExecuteStatementStart() {
+                statements.incrementAndGet();
+            }
+
+            @Override
+            public void jdbcExecuteBatchStart() {
+                batches.incrementAndGet();
+            }
+        };
+
+        // When
+        transactionTemplate.executeWithoutResult(tx -> {
+            entityManager.unwrap(Session.class).addEventListeners(listener);
+            for (int i = 0; i < 20; i++) {
+                entityManager.persist(new SlideShow());
+                entityManager.persist(new ProofOfPlay(1, i, Instant.now()));
+            }
+            entityManager.flush();
+        });
+
+        // Then(one batch per table, the rest are sequence calls)
+        assertEquals(2, batches.get());
+        assertTrue(statements.get() <= 4, "statements = " + statements.get());
+    }
+
+    @Test
+    void saveProofOfPlaysByCopy() {
+        // Given
+        var playedAt = Instant.parse("2024-03-01T10:15:30.123456Z");
+        var events = List.of(
+            new ProofOfPlayEvent(1, 10, playedAt),
+            new ProofOfPlayEvent(2, 20, playedAt.plusSeconds(1))
+        );
+
+        // When
+        transactionTemplate.executeWithoutResult(tx -> new ProofOfPlayCopyWriter(jdbcTemplate).insertAll(events, 1));
+
+        // Then
+        var saved = jdbcTemplate.query(
+            "select slide_show_id, image_id, created_at from proofs_of_play order by created_at",
+            (rs, rowNum) -> new ProofOfPlayEvent(rs.getInt(1), rs.getInt(2), rs.getTimestamp(3).toInstant())
+        );
+        assertEquals(events, saved);
+    }
+
+    @Test
+    void getPlayStats() {
+        // Given
+        var slideShow = persistSlideShow();
+        var images = getSortedSlideShowImages(slideShow.getId());
+        var range = "from=%s&to=%s".formatted(Instant.now().minus(1, ChronoUnit.HOURS), Instant.now().plus(1, ChronoUnit.HOURS));
+
+        // When
+        for (var image : images.subList(0, 2)) {
+            restClient
+                .post()
+                .uri("http://localhost:%d/slideshow/%d/proof-of-play/%d".formatted(port, slideShow.getId(), image.getImageId()))
+                .retrieve()
+                .toEntity(Void.class);
+        }
+        var slideShowPlays = restClient
+            .get()
+            .uri("http://localhost:%d/analytics/slideshows/%d/plays?granularity=MINUTE&%s".formatted(port, slideShow.getId(), range))
+            .retrieve()
+            .body(PlayStatsResponse.class);
+        var imagePlays = restClient
+            .get()
+            .uri("http://localhost:%d/analytics/images/%d/plays?granularity=DAY&%s".formatted(port, images.getFirst().getImageId(), range))
+            .retrieve()
+            .body(PlayStatsResponse.class);
+        var invalidRange = restClient
+            .get()
+            .uri("http://localhost:%d/analytics/images/%d/plays?from=%s&to=%s".formatted(port, images.getFirst().getImageId(), Instant.now(), Instant.now().minusSeconds(1)))
+            .exchange((request, response) -> response.getStatusCode());
+
+        // Then
+        assertNotNull(slideShowPlays);
+        assertEquals(2, slideShowPlays.totalPlays());
+        assertNotNull(imagePlays);
+        assertEquals(1, imagePlays.totalPlays());
+        assertEquals(1, imagePlays.buckets().size());
+        assertEquals(HttpStatus.BAD_REQUEST, invalidRange);
+    }
+
+    @Test
+    void deleteExpiredRollupsByOneInstance() throws Exception {
+        // Given(expired and recent minute rollups, day rollups are kept forever)
+        var expired = Instant.now().minus(analyticsProperties.minuteRetention()).minus(1, ChronoUnit.HOURS);
+        var rollups = List.of(
+            new Object[]{"MINUTE", Timestamp.from(Granularity.MINUTE.bucketOf(expired)), 1},
+            new Object[]{"MINUTE", Timestamp.from(Granularity.MINUTE.bucketOf(expired)), 2},
+            new Object[]{"MINUTE", Timestamp.from(Granularity.MINUTE.bucketOf(Instant.now())), 1},
+            new Object[]{"DAY", Timestamp.from(Granularity.DAY.bucketOf(expired)), 1}
+        );
+        jdbcTemplate.batchUpdate("insert into proof_of_play_rollups values (?, 1, ?, ?, 1)", rollups);
+        var locked = new CountDownLatch(1);
+        var release = new CompletableFuture<Void>();
+
+        // When(another instance holds the lock first)
+        long whileLocked;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var otherInstance = executor.submit(() -> transactionTemplate.executeWithoutResult(tx -> {
+                playRollupJdbcRepository.tryLockExpiration();
+                locked.countDown();
+                release.join();
+            }));
+            locked.await();
+            analyticsService.deleteExpiredRollups();
+            whileLocked = countRollups();
+            release.complete(null);
+            otherInstance.get();
+        }
+        analyticsService.deleteExpiredRollups();
+
+        // Then
+        assertEquals(4, whileLocked);
+        assertEquals(2, countRollups());
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from proof_of_play_rollups where granularity = 'DAY'", Long.class));
+    }
+
     @Test
     void deleteImage() {
         // Given
@@ -289,6 +1322,36 @@ class SlideshowApplicationTests {
         assertNull(getImage(currentSlideShowImage.getImageId()));
     }
 
+    @Test
+    void deleteImages() {
+        // Given(slide shows sharing the images, one of them loses all its images and an unrelated one has no images at all)
+        var slideShow = persistSlideShow();
+        var images = getSortedSlideShowImages(slideShow.getId()).stream().map(SlideShowImage::getImageId).toList();
+        var beach = images.get(0);
+        var birds = images.get(1);
+        var butterfly = images.get(2);
+        var reordered = persistSlideShow(List.of(butterfly, beach, birds), beach);
+        var birdsOnly = persistSlideShow(List.of(birds), birds);
+        var empty = persistSlideShow(List.of(), null);
+
+        // When
+        restClient
+            .post()
+            .uri("http://localhost:%d/images/delete".formatted(port))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new DeleteImagesRequest(List.of(beach, birds, Integer.MAX_VALUE)))
+            .retrieve()
+            .toBodilessEntity();
+
+        // Then
+        assertEquals(butterfly, getCurrentSlideShowImage(slideShow.getId()).getImageId());
+        assertEquals(butterfly, getCurrentSlideShowImage(reordered.getId()).getImageId());
+        assertNull(entityManager.find(SlideShow.class, birdsOnly.getId()));
+        assertNotNull(entityManager.find(SlideShow.class, empty.getId()));
+        assertNull(getImage(beach));
+        assertNull(getImage(birds));
+    }
+
     @Test
     void deleteSlideShow() {
         // Given
@@ -313,6 +1376,165 @@ class SlideshowApplicationTests {
         assertEquals(3, images.size());
     }
 
+    @Nested
+    @TestPropertySource(properties = "slideshow.proof-of-play.ingestion=async")
+    class AsyncProofOfPlayIngestion {
+
+        @Autowired
+        private ProofOfPlayIngestionService proofOfPlayIngestionService;
+
+        @Test
+        void skipOnlyFailingProofsOfPlay() throws Exception {
+            // Given(the second slideshow has no current image, so a proof of play of its not current image fails)
+            var slideShow = persistSlideShow();
+            var imageIds = getSortedSlideShowImages(slideShow.getId()).stream().map(SlideShowImage::getImageId).toList();
+            var broken = persistSlideShow(imageIds, null);
+
+            // When(both events are flushed in the same batch)
+            proofOfPlayIngestionService.submit(broken.getId(), imageIds.get(1));
+            proofOfPlayIngestionService.submit(slideShow.getId(), imageIds.getFirst());
+
+            // Then
+            var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (countProofsOfPlay(slideShow.getId()) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, countProofsOfPlay(slideShow.getId()));
+            assertEquals(0, countProofsOfPlay(broken.getId()));
+            assertEquals(imageIds.get(1), getCurrentSlideShowImage(slideShow.getId()).getImageId());
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"slideshow.concurrency.mode=optimistic", "slideshow.concurrency.max-attempts=100"})
+    class OptimisticConcurrency {
+
+        @Autowired
+        private SlideShowService slideShowService;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        @Test
+        void saveConcurrentProofsOfPlay() throws Exception {
+            // Given
+            var slideShow = persistSlideShow();
+            var imageIds = getSortedSlideShowImages(slideShow.getId()).stream().map(SlideShowImage::getImageId).toList();
+            var plays = 30;
+
+            // When(the same slide show is switched by all the threads at once, so versions conflict)
+            var results = new ArrayList<Future<?>>(plays);
+            try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < plays; i++) {
+                    var imageId = imageIds.get(i % imageIds.size());
+                    results.add(executor.submit(() -> slideShowService.saveProofOfPlay(slideShow.getId(), imageId)));
+                }
+            }
+
+            // Then
+            for (var result : results) {
+                result.get();
+            }
+            var currentImages = jdbcTemplate.queryForObject(
+                "select count(*) from slide_shows_images where slide_show_id = ? and is_current", Long.class, slideShow.getId()
+            );
+            assertEquals(1, currentImages);
+            assertEquals(plays, countProofsOfPlay(slideShow.getId()));
+            var retried = meterRegistry.find("slideshow.concurrency.conflicts").tag("outcome", "retried").counters();
+            assertTrue(retried.stream().mapToDouble(Counter::count).sum() > 0);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = {"slideshow.playback.mode=memory", "slideshow.playback.checkpoint-interval=1h"})
+    class MemoryPlayback {
+
+        @Autowired
+        private SlideShowService slideShowService;
+
+        @Autowired
+        private PlaybackEngine playbackEngine;
+
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        @Test
+        void persistCursorWithMembershipChange() {
+            // Given(the cursor is ahead of the database)
+            var slideShow = persistSlideShow();
+            var imageIds = getSortedSlideShowImages(slideShow.getId()).stream().map(SlideShowImage::getImageId).toList();
+            slideShowService.saveProofOfPlay(slideShow.getId(), imageIds.getFirst());
+            assertEquals(imageIds.getFirst(), getCurrentSlideShowImage(slideShow.getId()).getImageId());
+
+            // When
+            slideShowService.appendImage(slideShow.getId(), persistImage(TREE).getId());
+
+            // Then
+            assertEquals(imageIds.get(1), getCurrentSlideShowImage(slideShow.getId()).getImageId());
+            assertEquals(imageIds.get(1), playbackEngine.currentImageId(slideShow.getId()));
+        }
+
+        @Test
+        void keepCursorWhenMembershipChangeIsRolledBack() {
+            // Given(the cursor is ahead of the database)
+            var slideShow = persistSlideShow();
+            var imageIds = getSortedSlideShowImages(slideShow.getId()).stream().map(SlideShowImage::getImageId).toList();
+            slideShowService.saveProofOfPlay(slideShow.getId(), imageIds.getFirst());
+            slideShowService.saveProofOfPlay(slideShow.getId(), imageIds.get(1));
+
+            // When
+            transactionTemplate.executeWithoutResult(tx -> {
+                playbackEngine.detach(slideShow.getId());
+                tx.setRollbackOnly();
+            });
+
+            // Then(the cursor persisted by the rolled back transaction is persisted again by the next checkpoint)
+            assertEquals(imageIds.get(2), playbackEngine.currentImageId(slideShow.getId()));
+            assertEquals(imageIds.getFirst(), getCurrentSlideShowImage(slideShow.getId()).getImageId());
+            playbackEngine.checkpoint();
+            assertEquals(imageIds.get(2), getCurrentSlideShowImage(slideShow.getId()).getImageId());
+        }
+    }
+
+    private Integer addImage(String url) {
+        var result = restClient
+            .post()
+            .uri("http://localhost:%d/image".formatted(port))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body("""
+                {
+                  "url": "%s",
+                  "duration": 30
+                }
+                """.formatted(url))
+            .retrieve()
+            .body(AddImageResponse.class);
+        assertNotNull(result);
+        return result.id();
+    }
+
+    private HttpStatusCode addInvalidImage(String url) {
+        return restClient
+            .post()
+            .uri("http://localhost:%d/image".formatted(port))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body("""
+                {
+                  "url": "%s",
+                  "duration": 30
+                }
+                """.formatted(url))
+            .exchange((request, response) -> response.getStatusCode());
+    }
+
+    private double getValidationCacheHits() {
+        return meterRegistry.get("cache.gets").tag("cache", "image-validations").tag("result", "hit").functionCounter().count();
+    }
+
+    private long countRollups() {
+        return jdbcTemplate.queryForObject("select count(*) from proof_of_play_rollups", Long.class);
+    }
+
     private Image persistImage(String url) {
         return transactionTemplate.execute(tx -> {
             var image = new Image(url, 30);
@@ -333,10 +1555,10 @@ class SlideshowApplicationTests {
             );
             images.forEach(entityManager::persist);
 
-            var slideShowImages = images
-                .stream()
-                .map(it -> new SlideShowImage(new SlideShowImage.PK(slideShow.getId(), it.getId())))
-                .toList();
+            var slideShowImages = new ArrayList<SlideShowImage>(images.size());
+            for (int i = 0; i < images.size(); i++) {
+                slideShowImages.add(new SlideShowImage(new SlideShowImage.PK(slideShow.getId(), images.get(i).getId()), i));
+            }
             slideShowImages.getFirst().setCurrent(true);
             slideShowImages.forEach(entityManager::persist);
 
@@ -344,6 +1566,21 @@ class SlideshowApplicationTests {
         });
     }
 
+    // The images are added in the given order
+    private SlideShow persistSlideShow(List<Integer> imageIds, Integer currentImageId) {
+        return transactionTemplate.execute(tx -> {
+            var slideShow = new SlideShow();
+            entityManager.persist(slideShow);
+            for (int i = 0; i < imageIds.size(); i++) {
+                var slideShowImage = new SlideShowImage(new SlideShowImage.PK(slideShow.getId(), imageIds.get(i)), i);
+                slideShowImage.setCurrent(imageIds.get(i).equals(currentImageId));
+                entityManager.persist(slideShowImage);
+            }
+
+            return slideShow;
+        });
+    }
+
     private SlideShow persistSingleImageSlideShow() {
         return transactionTemplate.execute(tx -> {
             var slideShow = new SlideShow();
@@ -352,7 +1589,7 @@ class SlideshowApplicationTests {
             var image = new Image(BEACH, 10);
             entityManager.persist(image);
 
-            var slideShowImage = new SlideShowImage(new SlideShowImage.PK(slideShow.getId(), image.getId()));
+            var slideShowImage = new SlideShowImage(new SlideShowImage.PK(slideShow.getId(), image.getId()), 0);
             slideShowImage.setCurrent(true);
             entityManager.persist(slideShowImage);
 
@@ -362,7 +1599,7 @@ class SlideshowApplicationTests {
 
     private List<SlideShowImage> getSortedSlideShowImages(Integer slideShowId) {
         return entityManager
-            .createQuery("select ssi from SlideShowImage ssi where ssi.pk.slideShowId = :slideShowId order by ssi.createdAt", SlideShowImage.class)
+            .createQuery("select ssi from SlideShowImage ssi where ssi.pk.slideShowId = :slideShowId order by ssi.position", SlideShowImage.class)
             .setParameter("slideShowId", slideShowId)
             .getResultList();
     }
@@ -374,6 +1611,31 @@ class SlideshowApplicationTests {
             .getSingleResult();
     }
 
+    private void notifyAsOtherInstance(ChangeNotification notification) throws IOException {
+        jdbcTemplate.query("select pg_notify('slideshow_changes', ?)", rs -> {
+        }, objectMapper.writeValueAsString(notification));
+    }
+
+    private JsonNode readJson(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private SlideShowUpdateResponse readSlideShowUpdate(String json) {
+        try {
+            return objectMapper.readValue(json, SlideShowUpdateResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int countProofsOfPlay(Integer slideShowId) {
+        return jdbcTemplate.queryForObject("select count(*) from proofs_of_play where slide_show_id = ?", Integer.class, slideShowId);
+    }
+
     private Image getImage(Integer imageId) {
         return entityManager.find(Image.class, imageId);
     }